@@ -0,0 +1,97 @@
+package com.fran.sim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks Ape.getNewFoodSource and Ape.checkForDeaths on a group of a fixed seed habitat. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApeBenchmark {
+  /** Amount of infections resolved by every call to checkForDeaths */
+  private static final int EXPIRED_INFECTIONS = 8;
+
+  private Apes apes;
+  private Ape ape;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    BenchmarkStates.configure("100:150:14", InfectionKernel.BERNOULLI, false);
+    apes = BenchmarkStates.start(BenchmarkStates.WARM_UP_DAYS);
+    ape = BenchmarkStates.firstGroup(apes);
+  }
+
+  @Benchmark
+  public FoodSource getNewFoodSource() {
+    return ape.getNewFoodSource(apes);
+  }
+
+  @Benchmark
+  public int checkForDeaths(ExpiringCohort cohort) {
+    ape.checkForDeaths(apes);
+    return ape.getDeceasedCount();
+  }
+
+  /**
+   * Gives the group a cohort of infections that run out now before every call to checkForDeaths,
+   * once the gorillas, totals and counters the previous call changed are put back, so every call
+   * resolves the same cohort on the same group.
+   */
+  @State(Scope.Thread)
+  public static class ExpiringCohort {
+    private Apes apes;
+    private Ape ape;
+    /** Counts of the group before the first call */
+    private int population;
+    private int infected;
+    private int recovered;
+    private int deceased;
+    private int silverbacks;
+    private boolean silverbackDied;
+
+    @Setup(Level.Trial)
+    public void setUp(ApeBenchmark benchmark) {
+      apes = benchmark.apes;
+      ape = benchmark.ape;
+      population = ape.populationCount;
+      infected = ape.infectedCount;
+      recovered = ape.recoveredCount;
+      deceased = ape.deceasedCount;
+      silverbacks = ape.silverbackCounter;
+      silverbackDied = ape.hasSilverbackDied;
+    }
+
+    @Setup(Level.Invocation)
+    public void restore() {
+      /*Takes the outcomes of the previous cohort back out of the totals of the habitat*/
+      int recoveries = ape.recoveredCount - recovered;
+      int deaths = ape.deceasedCount - deceased;
+      apes.counters.recover(-recoveries);
+      apes.counters.die(-deaths);
+      apes.stat.addTotalRecoveredGorillas(-recoveries);
+      apes.stat.addTotalDeceasedGorillas(-deaths);
+
+      ape.populationCount = population;
+      ape.recoveredCount = recovered;
+      ape.deceasedCount = deceased;
+      ape.silverbackCounter = silverbacks;
+      ape.hasSilverbackDied = silverbackDied;
+      ape.infectedCount = infected + EXPIRED_INFECTIONS;
+      ape.infectionTimer.add(0, EXPIRED_INFECTIONS);
+    }
+  }
+}
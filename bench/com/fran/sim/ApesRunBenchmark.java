@@ -0,0 +1,49 @@
+package com.fran.sim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks a full run of the simulation, from start() to finish(), at several scales. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApesRunBenchmark {
+  /** Days of a full run, the same as SimSettings.numberOfSteps */
+  private static final int DAYS = 364;
+
+  /** Groups of gorillas, amount of food sources and food spreading intensity */
+  @Param({"100:150:14", "400:600:20", "1000:1500:30"})
+  public String scale;
+
+  @Param({"false", "true"})
+  public boolean eventDrivenScheduling;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    BenchmarkStates.configure(scale, InfectionKernel.BERNOULLI, eventDrivenScheduling);
+  }
+
+  @Benchmark
+  public double run() {
+    Apes apes = new Apes(BenchmarkStates.SEED);
+    apes.start();
+    while (apes.schedule.getTime() < DAYS && apes.schedule.step(apes)) ;
+    apes.finish();
+    return apes.stat.getRatioOfDeceased();
+  }
+}
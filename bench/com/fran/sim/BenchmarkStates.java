@@ -0,0 +1,53 @@
+package com.fran.sim;
+
+/**
+ * BenchmarkStates builds the fixed seed simulations the benchmarks are measured on, so every
+ * benchmark of a run starts from exactly the same habitat and groups.
+ *
+ * @author Francisco Caeiro
+ */
+final class BenchmarkStates {
+  /** Seed of every benchmarked simulation */
+  static final long SEED = 10000;
+  /** Days simulated before measuring, so the groups have moved and remember food sources */
+  static final int WARM_UP_DAYS = 28;
+
+  private BenchmarkStates() {}
+
+  /**
+   * Sets the parameters every following run starts from.
+   *
+   * @param scale groups of gorillas, amount of food sources and food spreading intensity, separated
+   *     by colons
+   */
+  static void configure(String scale, InfectionKernel infectionKernel, boolean eventDriven) {
+    String[] values = scale.split(":");
+    SimParameters parameters = new SimParameters();
+    parameters.groupsOfGorillas = Integer.parseInt(values[0]);
+    parameters.amountFoodSources = Integer.parseInt(values[1]);
+    parameters.foodSpreadingIntensity = Integer.parseInt(values[2]);
+    parameters.infectionKernel = infectionKernel;
+    parameters.eventDrivenScheduling = eventDriven;
+    SimSettings.parameters = parameters;
+    SimSettings.useSimlab = false;
+    SimSettings.enableRecordPrinting = false;
+  }
+
+  /** @return a started simulation that has been stepped for the given amount of days */
+  static Apes start(int days) {
+    Apes apes = new Apes(SEED);
+    apes.start();
+    for (int i = 0; i < days && apes.schedule.step(apes); i++) ;
+    return apes;
+  }
+
+  /** @return the first group of the habitat with gorillas left */
+  static Ape firstGroup(Apes apes) {
+    for (Ape ape : apes.groups) {
+      if (ape.getPopulation() > 0) {
+        return ape;
+      }
+    }
+    throw new IllegalStateException("No active group in the benchmark state");
+  }
+}
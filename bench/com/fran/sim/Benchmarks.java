@@ -0,0 +1,28 @@
+package com.fran.sim;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks. Runs every benchmark with the GC profiler, so allocation rates are
+ * reported next to the timings. Any JMH command line option can be passed, e.g. a benchmark name
+ * to only run that one.
+ *
+ * @author Francisco Caeiro
+ */
+public class Benchmarks {
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    OptionsBuilder builder = new OptionsBuilder();
+    builder.parent(commandLine).addProfiler(GCProfiler.class);
+    /*Benchmarks named on the command line replace the default of running all of them*/
+    if (commandLine.getIncludes().isEmpty()) builder.include("com\\.fran\\.sim\\..*Benchmark");
+    Options options = builder.build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,47 @@
+package com.fran.sim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Ape.disperse. Dispersal empties the group, so the habitat is rebuilt before every
+ * measured call and each call is timed on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 200)
+@Measurement(iterations = 200)
+@Fork(1)
+public class DisperseBenchmark {
+  /** Groups of gorillas, amount of food sources and food spreading intensity */
+  @Param({"100:150:14", "1000:1500:30"})
+  public String scale;
+
+  private Apes apes;
+  private Ape ape;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    BenchmarkStates.configure(scale, InfectionKernel.BERNOULLI, false);
+    apes = BenchmarkStates.start(BenchmarkStates.WARM_UP_DAYS);
+    ape = BenchmarkStates.firstGroup(apes);
+  }
+
+  @Benchmark
+  public boolean disperse() {
+    return ape.disperse(apes);
+  }
+}
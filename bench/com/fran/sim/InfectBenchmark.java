@@ -0,0 +1,64 @@
+package com.fran.sim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks Ape.infect with every infection kernel. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InfectBenchmark {
+  @Param({"BERNOULLI", "BINOMIAL", "BINOMIAL_COLLAPSED"})
+  public InfectionKernel infectionKernel;
+
+  /** Amount of infected gorillas the group is exposed to */
+  @Param({"1", "8"})
+  public int infectedSources;
+
+  private Apes apes;
+  private Ape ape;
+  /** Counts of the group before the first call */
+  private int susceptible;
+  private int infected;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    BenchmarkStates.configure("100:150:14", infectionKernel, false);
+    apes = BenchmarkStates.start(BenchmarkStates.WARM_UP_DAYS);
+    ape = BenchmarkStates.firstGroup(apes);
+    susceptible = ape.susceptibleCount;
+    infected = ape.infectedCount;
+  }
+
+  /** Undoes the infections of the previous call, so every call sees the same group and totals */
+  @Setup(Level.Invocation)
+  public void restore() {
+    int infections = ape.infectedCount - infected;
+    apes.counters.infect(-infections);
+    apes.stat.addTotalInfectedGorillas(-infections);
+    ape.susceptibleCount = susceptible;
+    ape.infectedCount = infected;
+    /*Infect only adds timers, it never reads them*/
+    ape.infectionTimer.clear();
+  }
+
+  @Benchmark
+  public int infect() {
+    return ape.infect(apes, infectedSources, apes.parameters.transmissionProbability);
+  }
+}
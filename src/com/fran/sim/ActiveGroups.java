@@ -0,0 +1,156 @@
+package com.fran.sim;
+
+import ec.util.MersenneTwisterFast;
+
+import java.util.Arrays;
+
+/**
+ * ActiveGroups keeps the gorilla groups that are still active together with their locations, so
+ * dispersal can pick target groups without scanning every object in the habitat. Groups are removed
+ * in constant time by moving the last group into the freed slot.
+ *
+ * @author Francisco Caeiro
+ */
+public class ActiveGroups {
+  /** Active groups, the first size slots are used */
+  private Ape[] groups;
+  /** Location of each active group, indexed the same way as groups */
+  private int[] locationsX;
+  private int[] locationsY;
+  private int size;
+
+  /** Groups a dispersal can move gorillas to, with the cumulative weight of choosing each one */
+  private Ape[] targets;
+  private double[] cumulativeWeights;
+  private int amountTargets;
+
+  public ActiveGroups(int capacity) {
+    capacity = Math.max(1, capacity);
+    groups = new Ape[capacity];
+    locationsX = new int[capacity];
+    locationsY = new int[capacity];
+    targets = new Ape[capacity];
+    cumulativeWeights = new double[capacity];
+  }
+
+  /** @return amount of active groups */
+  public int size() {
+    return size;
+  }
+
+  /** Removes every group */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      groups[i].activeIndex = -1;
+      groups[i] = null;
+    }
+    for (int i = 0; i < amountTargets; i++) targets[i] = null;
+    size = 0;
+    amountTargets = 0;
+  }
+
+  /** Adds a group at its current location */
+  void add(Ape ape) {
+    if (size == groups.length) grow(size * 2);
+    ape.activeIndex = size;
+    groups[size] = ape;
+    size++;
+    updateLocation(ape);
+  }
+
+  /** Removes a group that became inactive */
+  void remove(Ape ape) {
+    int index = ape.activeIndex;
+    if (index < 0) return;
+    size--;
+    Ape last = groups[size];
+    groups[index] = last;
+    locationsX[index] = locationsX[size];
+    locationsY[index] = locationsY[size];
+    last.activeIndex = index;
+    groups[size] = null;
+    ape.activeIndex = -1;
+  }
+
+  /** Records the location of a group after it moved */
+  void updateLocation(Ape ape) {
+    if (ape.activeIndex < 0) return;
+    locationsX[ape.activeIndex] = ape.getLocation().x;
+    locationsY[ape.activeIndex] = ape.getLocation().y;
+  }
+
+  /**
+   * Builds the sampler used by the gorillas of a dispersing group. Every other active group is kept
+   * as a target with the given probability, which is drawn by skipping a geometric amount of groups
+   * instead of one trial per group. Targets are weighted by the inverse of their distance.
+   *
+   * <p>A kept group in the same cell as the dispersing group has an infinite weight. The original
+   * normalisation of the weights turned that into NaN and no gorilla moved, which is kept here so
+   * results stay comparable with earlier runs.
+   *
+   * @return false if no gorilla can be dispersed
+   */
+  boolean prepareDispersal(Ape source, double probability, MersenneTwisterFast random) {
+    amountTargets = 0;
+    int others = source.activeIndex < 0 ? size : size - 1;
+    if (probability <= 0 || others == 0) return false;
+
+    int x = source.getLocation().x;
+    int y = source.getLocation().y;
+    double logFailure = probability < 1 ? Math.log(1 - probability) : 0;
+    double sum = 0;
+
+    long position = skip(probability, logFailure, random);
+    while (position < others) {
+      int index = (int) position;
+      if (source.activeIndex >= 0 && index >= source.activeIndex) index++;
+      double dx = locationsX[index] - x;
+      double dy = locationsY[index] - y;
+      double distance = Math.sqrt(dx * dx + dy * dy);
+
+      if (distance == 0) {
+        amountTargets = 0;
+        return false;
+      }
+      sum += 1 / distance;
+      targets[amountTargets] = groups[index];
+      cumulativeWeights[amountTargets] = sum;
+      amountTargets++;
+
+      position += 1L + skip(probability, logFailure, random);
+    }
+
+    return amountTargets > 0;
+  }
+
+  /** @return a target of the last prepared dispersal, chosen by weight */
+  Ape drawTarget(MersenneTwisterFast random) {
+    double target = random.nextDouble() * cumulativeWeights[amountTargets - 1];
+    int low = 0;
+    int high = amountTargets - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (cumulativeWeights[middle] > target) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return targets[low];
+  }
+
+  /** @return amount of groups skipped before the next one is kept with the given probability */
+  private int skip(double probability, double logFailure, MersenneTwisterFast random) {
+    if (probability >= 1) return 0;
+    double skipped = Math.floor(Math.log(1 - random.nextDouble()) / logFailure);
+    return skipped > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) skipped;
+  }
+
+  private void grow(int capacity) {
+    groups = Arrays.copyOf(groups, capacity);
+    locationsX = Arrays.copyOf(locationsX, capacity);
+    locationsY = Arrays.copyOf(locationsY, capacity);
+    targets = Arrays.copyOf(targets, capacity);
+    cumulativeWeights = Arrays.copyOf(cumulativeWeights, capacity);
+  }
+}
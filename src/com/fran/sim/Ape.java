@@ -1,18 +1,13 @@
 package com.fran.sim;
 
-import javafx.util.Pair;
+import com.fran.util.Binomial;
+import com.fran.util.RandomStreams;
+import ec.util.MersenneTwisterFast;
+import sim.engine.Schedule;
 import sim.engine.SimState;
 import sim.engine.Steppable;
-import sim.field.grid.SparseGrid2D;
-import sim.field.network.Edge;
-import sim.util.Bag;
 import sim.util.Int2D;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
 /**
  * Ape is a steppable agent in the simulation. It represents the gorilla groups and controls the
  * behaviour of said agents.
@@ -21,23 +16,75 @@ import java.util.stream.Stream;
  */
 public class Ape implements Steppable {
 
-  private Bag neighbourFoodSources;
-  private Bag memoryFoodSources;
+  /** Food sources in the home range of the group */
+  FoodSource[] neighbourFoodSources;
+  /**
+   * Cumulative weights used to choose the next food source, one row of neighbourFoodSources.length
+   * entries per food source the group can be at. The weight of each food source is the inverse of
+   * its distance, and 0 for the food source the group is at. Never modified, so groups restored
+   * from the same Checkpoint share it.
+   */
+  double[] cumulativeWeights;
+  /** Weights computed by the group itself, reused when a later run has a home range of that size */
+  private double[] ownWeights;
+  /** Index in neighbourFoodSources of the food source the group is at */
+  int currentFoodSource;
+  /** Indexes of the food sources the group remembers, in a circular buffer from oldest to newest */
+  private int[] memoryFoodSources;
+  private int memoryStart;
+  private int memorySize;
+  /** Scratch space used to sort the remembered food sources */
+  private int[] sortedMemory;
   private int movementCounter;
-  private int silverbackNumber;
-  private int silverbackCounter;
+  int silverbackNumber;
+  int silverbackCounter;
 
   /** Integers representing the quantity of the gorillas (total, male, female) */
-  private int populationCount;
+  int populationCount;
   int susceptibleCount;
   int infectedCount;
   int recoveredCount;
   int deceasedCount;
 
-  List<Integer> infectionTimer;
+  /** Days left until each infected gorilla recovers or dies */
+  InfectionTimers infectionTimer;
 
-  private boolean hasSilverbackDied;
+  boolean hasSilverbackDied;
   private boolean groupInactive;
+  /** Slot of the group in the ActiveGroups index, -1 once inactive */
+  int activeIndex = -1;
+  /** Cell of the group and its neighbours in that cell, used by DenseHabitat */
+  int cell = -1;
+  Ape previousInCell;
+  Ape nextInCell;
+  /** True if the group moved in the current step and its contacts weren't resolved yet */
+  boolean moved;
+  /** True if the last move was to a food source visited by chimpanzees */
+  private boolean exposedToChimpanzees;
+  /** True if the chimpanzees of that food source infected the group */
+  private boolean infectedByChimpanzees;
+  /**
+   * Transitions not added to the totals of the run yet. With agent random streams the groups only
+   * touch their own state while they move and meet, the phases add them up afterwards.
+   */
+  private int pendingInfections;
+  private int pendingRecoveries;
+  private int pendingDeaths;
+
+  /** Random numbers of the group, its own stream or the one of the run */
+  private MersenneTwisterFast random;
+  /** Own stream of the group, kept to be reseeded by later runs */
+  private MersenneTwisterFast ownRandom;
+
+  /** Parameters of the run this group belongs to */
+  private RunParameters parameters;
+  /** Identifier of the group, stable across runs with the same settings */
+  private final int id;
+
+  /** @return identifier of the group */
+  public int getId() {
+    return this.id;
+  }
 
   /** Java Bean to display population */
   public int getPopulation() {
@@ -61,107 +108,317 @@ public class Ape implements Steppable {
   }
 
   /**
-   * * Constructor takes the simState and an Int2D that represents the centre of the gorillas home
-   * range (which will be a randomly chosen food source)
+   * Creates a group with no home range or population yet, one of the reset methods sets them. Apes
+   * keeps its groups between runs and resets them in place, so each id is only created once.
    */
-  Ape(SimState simState, Int2D centerHomeRange) {
+  Ape(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Sets up the group for a new run. Takes the simState and an Int2D that represents the centre of
+   * the gorillas home range (which will be a randomly chosen food source)
+   */
+  void reset(SimState simState, RunParameters parameters, Int2D centerHomeRange) {
+    resetState(parameters);
     Apes apes = (Apes) simState;
+
+    /*Calculates population between set boundaries*/
+    populationCount =
+        apes.random.nextInt(parameters.maxPopulation - parameters.minPopulation)
+            + parameters.minPopulation;
+
+    /*Gets the food sources in the moore neighbourhood (square around the gorillas) */
+    FoodSource[] around = apes.foodSourceBuffer;
+    int amountFoodSources =
+        apes.habitat.getFoodSourcesAround(
+            centerHomeRange.x, centerHomeRange.y, parameters.homerangeRadius, around);
+    if (neighbourFoodSources == null || neighbourFoodSources.length != amountFoodSources) {
+      neighbourFoodSources = new FoodSource[amountFoodSources];
+    }
+    Int2D[] locations = apes.locationBuffer;
+    for (int i = 0; i < amountFoodSources; i++) {
+      FoodSource fs = around[i];
+      neighbourFoodSources[i] = fs;
+      locations[i] = fs.location;
+      fs.setVisible();
+      if (fs.location == centerHomeRange) {
+        currentFoodSource = i;
+      }
+    }
+
+    silverbackNumber = simState.random.nextInt(populationCount);
+
+    ownWeights = homeRangeWeights(locations, amountFoodSources, ownWeights);
+    cumulativeWeights = ownWeights;
+    initializeHomeRange();
+  }
+
+  /**
+   * Sets up the group for a new run from a Checkpoint. Nothing is drawn from the random number
+   * generator, the population and home range are the ones saved.
+   *
+   * @param homeRange indexes in foodSources of the food sources in the home range
+   * @param cumulativeWeights weights of the home range, as computed by homeRangeWeights
+   */
+  void reset(
+      RunParameters parameters,
+      int populationCount,
+      int silverbackNumber,
+      int[] homeRange,
+      FoodSource[] foodSources,
+      int currentFoodSource,
+      double[] cumulativeWeights) {
+    resetState(parameters);
+    this.populationCount = populationCount;
+    this.silverbackNumber = silverbackNumber;
+    if (neighbourFoodSources == null || neighbourFoodSources.length != homeRange.length) {
+      neighbourFoodSources = new FoodSource[homeRange.length];
+    }
+    for (int i = 0; i < homeRange.length; i++) neighbourFoodSources[i] = foodSources[homeRange[i]];
+    this.currentFoodSource = currentFoodSource;
+    this.cumulativeWeights = cumulativeWeights;
+    initializeHomeRange();
+  }
+
+  /** Clears whatever is left of a previous run */
+  private void resetState(RunParameters parameters) {
+    this.parameters = parameters;
     hasSilverbackDied = false;
     groupInactive = false;
-    infectionTimer = new ArrayList<>(populationCount);
-
-    /*Creates bags that will contain locations of neighbouring food sources (one is for the memory)*/
-    this.neighbourFoodSources = new Bag();
-    this.memoryFoodSources = new Bag(SimParameters.gorillaMemoryLength);
+    activeIndex = -1;
+    cell = -1;
+    previousInCell = null;
+    nextInCell = null;
+    moved = false;
+    exposedToChimpanzees = false;
+    infectedByChimpanzees = false;
+    pendingInfections = 0;
+    pendingRecoveries = 0;
+    pendingDeaths = 0;
+    if (infectionTimer == null) {
+      infectionTimer = new InfectionTimers(parameters.infectionTime);
+    } else {
+      infectionTimer.clear();
+    }
 
     /*This will be the 'timer' for specific gorilla behaviour*/
-    movementCounter = SimParameters.gorillaFoodWaitTime;
+    movementCounter = parameters.gorillaFoodWaitTime;
+  }
 
-    /*Calculates population between set boundaries*/
-    populationCount =
-        apes.random.nextInt(SimParameters.maxPopulation - SimParameters.minPopulation)
-            + SimParameters.minPopulation;
-
-    /*Gets the moore neighbours (circle around the gorillas) */
-    Bag allNeighbours =
-        apes.habitat.getMooreNeighbors(
-            centerHomeRange.x,
-            centerHomeRange.y,
-            SimParameters.homerangeRadius,
-            SparseGrid2D.BOUNDED,
-            true);
-
-    /*Filters the objects to just get the food sources*/
-    Stream<Object> stream = allNeighbours.stream();
-    neighbourFoodSources.addAll(
-        stream.filter(obj -> obj instanceof FoodSource).collect(Collectors.toList()));
-    neighbourFoodSources.forEach(obj -> ((FoodSource) obj).setVisible());
-
-    stream = neighbourFoodSources.stream();
-    memoryFoodSources.addAll(
-        stream
-            .filter(obj -> ((FoodSource) obj).location == centerHomeRange)
-            .collect(Collectors.toList()));
+  /**
+   * Home ranges don't change, so the weights between each pair of food sources are computed once.
+   *
+   * @param locations locations of the food sources of a home range
+   * @return cumulative weights of moving between them, in the layout of cumulativeWeights
+   */
+  static double[] homeRangeWeights(Int2D[] locations) {
+    return homeRangeWeights(locations, locations.length, null);
+  }
+
+  /**
+   * Same as homeRangeWeights(Int2D[]) for the first amountFoodSources locations.
+   *
+   * @param weights array the weights are written into, a new one is created if it is null or its
+   *     size is wrong
+   */
+  private static double[] homeRangeWeights(
+      Int2D[] locations, int amountFoodSources, double[] weights) {
+    if (weights == null || weights.length != amountFoodSources * amountFoodSources) {
+      weights = new double[amountFoodSources * amountFoodSources];
+    }
+    for (int i = 0; i < amountFoodSources; i++) {
+      Int2D from = locations[i];
+      double sum = 0;
+      for (int j = 0; j < amountFoodSources; j++) {
+        if (i != j) {
+          Int2D to = locations[j];
+          sum += calculateProbabilityDistance(from.x, from.y, to.x, to.y);
+        }
+        weights[i * amountFoodSources + j] = sum;
+      }
+    }
+    return weights;
+  }
+
+  /** Sets up the memory and counts of a group once its home range and population are set */
+  private void initializeHomeRange() {
+    /*The group starts remembering the centre of its home range*/
+    int memoryLength = Math.max(1, parameters.gorillaMemoryLength);
+    if (memoryFoodSources == null || memoryFoodSources.length != memoryLength) {
+      memoryFoodSources = new int[memoryLength];
+      sortedMemory = new int[memoryLength];
+    }
+    memoryStart = 0;
+    memorySize = 0;
+    remember(currentFoodSource);
 
     susceptibleCount = populationCount;
     infectedCount = 0;
     recoveredCount = 0;
     deceasedCount = 0;
 
-    silverbackNumber = simState.random.nextInt(populationCount);
     silverbackCounter = silverbackNumber;
   }
 
+  /**
+   * Chooses where the group draws its random numbers from during the run, once the landscape is
+   * placed: either its own stream, derived from the seed of the run and its id, or the generator
+   * of the run.
+   */
+  void setRandom(Apes apes) {
+    if (parameters.agentRandomStreams) {
+      long streamSeed = RandomStreams.seed(apes.seed(), RandomStreams.GROUP, id);
+      ownRandom = RandomStreams.reseed(ownRandom, streamSeed);
+      random = ownRandom;
+    } else {
+      random = apes.random;
+    }
+  }
+
+  /** @return time of the first move of the group, when it is first stepped */
+  double firstEventTime() {
+    return firstEventTime(parameters);
+  }
+
+  /**
+   * Apes schedules the GroupStepper with it too, so groups stepped together move on the same days
+   * as groups stepped on their own.
+   *
+   * @return time of the first move of every group of a run
+   */
+  static double firstEventTime(RunParameters parameters) {
+    return Schedule.EPOCH + moveInterval(parameters) - 1;
+  }
+
+  /** @return days between two moves of a group, with event driven scheduling */
+  static double moveInterval(RunParameters parameters) {
+    return Math.max(1, parameters.gorillaFoodWaitTime);
+  }
+
   /**
    * Called by the scheduler after each step. Used to update positions, weights and state of the
-   * agents.
+   * agents. With event driven scheduling the ape is only stepped on the days it moves, and it
+   * schedules its next move itself.
    */
   @Override
   public void step(SimState simState) {
     if (!groupInactive) {
-      /*Get static simState instance and cast as our subclass to get functions and member vars*/
-      Apes apes = (Apes) simState;
-      SparseGrid2D habitat = apes.habitat;
-
-      movementCounter--;
-
-      /*If movementCounter runs out, search for new food source*/
-      if (movementCounter <= 0) {
-        /*Reset movement counter*/
-        movementCounter = SimParameters.gorillaFoodWaitTime;
-        /*Get new food source*/
-        FoodSource fs = getNewFoodSource(simState);
-        habitat.setObjectLocation(this, fs.location);
-        infect(simState, infectedCount, SimParameters.transmissionProbability);
-
-        if (fs.visitedByChimpanzees) {
-          int infected = infect(simState, 1, fs.infectionProbability);
-          if (infected > 0) {
-            fs.infectedInCurrentStep = true;
-            //System.out.print(FoodSource.infectionProbability);
-          }
-          fs.incrementInfectionProbability();
+      if (parameters.eventDrivenScheduling) {
+        move(simState);
+        if (!groupInactive) {
+          simState.schedule.scheduleOnce(
+              simState.schedule.getTime() + moveInterval(parameters),
+              Apes.APE_ORDERING,
+              this);
         }
+      } else {
+        countDown(simState);
+      }
+    }
+  }
+
+  /**
+   * Step of the group when a GroupStepper steps every group at once and takes care of scheduling
+   * them, on the same days step() would move the group.
+   */
+  void stepScheduledByGroup(SimState simState) {
+    if (!groupInactive) {
+      if (parameters.eventDrivenScheduling) {
+        move(simState);
+      } else {
+        countDown(simState);
+      }
+    }
+  }
 
-        decreaseInfectionTimer(infectionTimer);
-        checkForDeaths(simState, infectionTimer);
+  /** Day of a group stepped every day, it moves once its time at the food source is over */
+  private void countDown(SimState simState) {
+    movementCounter--;
 
-        if (hasSilverbackDied) {
-          disperse(simState);
-          if(populationCount > 0){
-            hasSilverbackDied = false;
-            silverbackNumber = simState.random.nextInt(populationCount);
-            silverbackCounter = silverbackNumber;
-          }
-        }
+    /*If movementCounter runs out, search for new food source*/
+    if (movementCounter <= 0) {
+      /*Reset movement counter*/
+      movementCounter = parameters.gorillaFoodWaitTime;
+      move(simState);
+    }
+  }
 
-        /*Updates the network of interactions*/
-        updateNetwork(simState);
+  /** Moves the group to a new food source and updates the state of the disease within it */
+  private void move(SimState simState) {
+    /*Get static simState instance and cast as our subclass to get functions and member vars*/
+    Apes apes = (Apes) simState;
 
-        if (populationCount <= 0) {
-          groupInactive = true;
-        }
+    /*Get new food source*/
+    FoodSource fs = getNewFoodSource(simState);
+    apes.activeGroups.updateLocation(this);
+    infect(simState, infectedCount, parameters.transmissionProbability);
+
+    if (fs.visitedByChimpanzees) {
+      int infected = infect(simState, 1, fs.infectionProbability);
+      if (infected > 0) {
+        infectedByChimpanzees = true;
+        //System.out.print(FoodSource.infectionProbability);
+      }
+      exposedToChimpanzees = true;
+    }
+
+    infectionTimer.decrease();
+    checkForDeaths(simState);
+
+    /*With independent random streams, the effects on others wait until every group moved*/
+    if (parameters.agentRandomStreams) {
+      apes.contactPhase.addMover(this);
+      return;
+    }
+
+    settleMove(simState);
+
+    /*Updates the network of interactions, now or in the contact phase once every group moved*/
+    if (parameters.contactPhase) {
+      apes.contactPhase.addMover(this);
+    } else {
+      updateNetwork(simState);
+    }
+
+    updateActivity(apes);
+  }
+
+  /**
+   * Applies the effects the last move has beyond the group: the group is moved in the habitat, the
+   * food source gets more traffic and gets more infectious after a chimpanzee encounter, and the
+   * gorillas disperse to other groups if the silverback died.
+   */
+  void settleMove(SimState simState) {
+    Apes apes = (Apes) simState;
+    FoodSource fs = neighbourFoodSources[currentFoodSource];
+    apes.habitat.moveApe(this, fs.location);
+    fs.incrementHeat();
+    if (exposedToChimpanzees) {
+      exposedToChimpanzees = false;
+      if (infectedByChimpanzees) {
+        infectedByChimpanzees = false;
+        fs.lastInfectionTime = simState.schedule.getTime();
       }
+      fs.incrementInfectionProbability();
+    }
+    reportPending(apes);
+
+    if (hasSilverbackDied) {
+      disperse(simState);
+      if(populationCount > 0){
+        hasSilverbackDied = false;
+        silverbackNumber = random.nextInt(populationCount);
+        silverbackCounter = silverbackNumber;
+      }
+    }
+  }
+
+  /** Removes the group from the active groups once it has no gorillas left */
+  void updateActivity(Apes apes) {
+    if (populationCount <= 0) {
+      groupInactive = true;
+      apes.activeGroups.remove(this);
     }
   }
 
@@ -172,140 +429,248 @@ public class Ape implements Steppable {
   private void updateNetwork(SimState simState) {
     /*Get static simState instance and cast as our subclass to get functions and member vars*/
     Apes apes = (Apes) simState;
-    SparseGrid2D habitat = apes.habitat;
-
-    /*Gets our location and then gets all objects at our location*/
-    Int2D me = habitat.getObjectLocation(this);
-    Bag cell = habitat.getObjectsAtLocation(me);
 
-    /*Loops through every object in our location and if another gorilla group is found, updates the network*/
-    for (int i = 0; i < cell.size(); i++) {
-      Object obj = cell.get(i);
-      /*If object is gorilla group and is not the current object*/
-      if (obj instanceof Ape && obj != this) {
-
-        int originalApeInfection = ((Ape) obj).infectedCount;
-        ((Ape) obj).infect(simState, infectedCount, SimParameters.transmissionProbability);
-        this.infect(simState, originalApeInfection, SimParameters.transmissionProbability);
-
-        /*If the edge doesn't exist, create it*/
-        if (apes.interactions.getEdge(this, obj) == null) {
-          apes.interactions.addEdge(this, obj, 1);
-        }
-        /*Else, get edge and add 1 to the weight, then update edge*/
-        else {
-          Edge edge = apes.interactions.getEdge(this, obj);
-          Integer interactionCount = (Integer) edge.getInfo();
-          interactionCount++;
-          apes.interactions.updateEdge(edge, this, obj, interactionCount);
-        }
-        apes.recordPrinter.addInteractionApe(this, (Ape) obj);
+    /*Gets our location and then gets all gorilla groups at our location*/
+    Int2D me = getLocation();
+    Ape[] cell = apes.cellBuffer;
+    int amountApes = apes.habitat.getApesAt(me, cell);
+
+    /*Loops through every group in our location and updates the network for each other group*/
+    for (int i = 0; i < amountApes; i++) {
+      Ape other = cell[i];
+      /*If the group is not the current object*/
+      if (other != this) {
+        contact(simState, other);
       }
     }
   }
 
-  private FoodSource getNewFoodSource(SimState simState) {
-    /*Get static simState instance and cast as our subclass to get functions and member vars*/
+  /**
+   * Resolves a contact with another group in the same cell. Each group is exposed to the gorillas
+   * the other one had infected before the contact, and the interaction is recorded.
+   */
+  void contact(SimState simState, Ape other) {
+    infectContact(simState, other);
+    recordContact(simState, other);
+  }
+
+  /** Infection part of a contact, it only changes the state of both groups */
+  void infectContact(SimState simState, Ape other) {
+    int originalApeInfection = other.infectedCount;
+    other.infect(simState, infectedCount, parameters.transmissionProbability);
+    this.infect(simState, originalApeInfection, parameters.transmissionProbability);
+  }
+
+  /** Adds 1 to the amount of interactions between both groups */
+  void recordContact(SimState simState, Ape other) {
     Apes apes = (Apes) simState;
-    SparseGrid2D habitat = apes.habitat;
-
-    if (neighbourFoodSources.size() <= 1) {
-      return (FoodSource) neighbourFoodSources.get(0);
-    }
-
-    /*Create a bag with FoodSource, Probability value pairs*/
-    Bag probabilities = new Bag(neighbourFoodSources.size());
-    Bag normalisedProbabilities = new Bag(neighbourFoodSources.size());
-
-    /*Loops through the neighbouring FoodSources, computes the distance to them and stores
-     * pairs of (FoodSource, probability based on distance). Also calculates sums of all the probabilities*/
-    Int2D me = habitat.getObjectLocation(this);
-    double sum = 0;
-    for (int i = 0; i < neighbourFoodSources.size(); i++) {
-      FoodSource fs = (FoodSource) neighbourFoodSources.get(i);
-      /*Omits current food source if at same location as agent or if in memory*/
-      if (!(me.x == fs.location.x && me.y == fs.location.y) && !memoryFoodSources.contains(fs)) {
-        double probabilityDistance =
-            calculateProbabilityDistance(me.x, me.y, fs.location.x, fs.location.y);
-        probabilities.add(new Pair<>(fs, probabilityDistance));
-        sum += probabilityDistance;
+    apes.interactions.addContact(this, other);
+    apes.recordPrinter.addInteractionApe((int) simState.schedule.getTime(), this, other);
+  }
+
+  /** @return location of the food source the group is at */
+  public Int2D getLocation() {
+    return neighbourFoodSources[currentFoodSource].location;
+  }
+
+  /**
+   * Chooses the next food source of the home range at random, weighted by the inverse of the
+   * distance to it. The food source the group is at and the ones it remembers can't be chosen,
+   * unless they are the only ones left, in which case the memory is cleared.
+   */
+  FoodSource getNewFoodSource(SimState simState) {
+    int n = neighbourFoodSources.length;
+    if (n <= 1) {
+      return neighbourFoodSources[0];
+    }
+
+    /*Remembered food sources are sorted by index, to skip over their weights in order*/
+    int row = currentFoodSource * n;
+    double total = cumulativeWeights[row + n - 1];
+    double available = total;
+    int rememberedWithWeight = 0;
+    for (int i = 0; i < memorySize; i++) {
+      int index = memoryFoodSources[(memoryStart + i) % memoryFoodSources.length];
+      int j = i;
+      while (j > 0 && sortedMemory[j - 1] > index) {
+        sortedMemory[j] = sortedMemory[j - 1];
+        j--;
       }
+      sortedMemory[j] = index;
+      available -= weight(row, index);
+      if (weight(row, index) > 0) rememberedWithWeight++;
+    }
+    int excluded = memorySize;
+
+    /*Every food source but the current one has weight, since no two share a location. Exhaustion
+    is counted rather than told from the weights left, which rounding rarely brings down to 0*/
+    if (rememberedWithWeight >= n - 1) {
+      memorySize = 0;
+      excluded = 0;
+      available = total;
     }
 
-    if (probabilities.isEmpty()) {
-      memoryFoodSources = new Bag();
-      return getNewFoodSource(simState);
+    /*Draws a point among the weights left and moves it past the weights of the excluded sources*/
+    double target = random.nextDouble() * available;
+    for (int i = 0; i < excluded; i++) {
+      int index = sortedMemory[i];
+      if (target >= cumulativeWeights[row + index] - weight(row, index)) {
+        target += weight(row, index);
+      }
     }
 
-    /*Since Pairs are immutable, pops all pairs and pushed new pairs that are divided by the sum*/
-    int size = probabilities.size();
-    for (int i = 0; i < size; i++) {
-      Object obj = probabilities.pop();
-      if (obj instanceof Pair) {
-        FoodSource fs = (FoodSource) ((Pair) obj).getKey();
-        Double value = (Double) ((Pair) obj).getValue() / sum;
-        normalisedProbabilities.add(new Pair<>(fs, value));
+    /*Binary search for the first food source whose cumulative weight goes past the target*/
+    int low = 0;
+    int high = n - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (cumulativeWeights[row + middle] > target) {
+        high = middle;
+      } else {
+        low = middle + 1;
       }
     }
 
-    /*Find the correct index according to probabilities*/
-    double randomDouble = apes.random.nextDouble();
-    double choose = 0;
-    int index = 0;
+    /*Rounding can land the target on a food source that can't be chosen, so step to a valid one*/
+    int chosen = low;
+    while (chosen > 0 && !isSelectable(row, chosen)) chosen--;
+    while (chosen < n - 1 && !isSelectable(row, chosen)) chosen++;
 
-    for (int j = 0; j < normalisedProbabilities.size(); j++) {
-      Object obj = normalisedProbabilities.get(j);
-      if (obj instanceof Pair) {
-        choose += (double) ((Pair) obj).getValue();
-        if (randomDouble < choose) {
-          index = j;
-          break;
-        }
-      }
+    currentFoodSource = chosen;
+    remember(chosen);
+
+    return neighbourFoodSources[chosen];
+  }
+
+  /** @return weight of moving to the food source at index, from the food source of the given row */
+  private double weight(int row, int index) {
+    return index == 0
+        ? cumulativeWeights[row]
+        : cumulativeWeights[row + index] - cumulativeWeights[row + index - 1];
+  }
+
+  /** @return true if the food source at index has weight and isn't remembered by the group */
+  private boolean isSelectable(int row, int index) {
+    return weight(row, index) > 0 && !isRemembered(index);
+  }
+
+  /** @return true if the food source at index is in the memory of the group */
+  boolean isRemembered(int index) {
+    for (int i = 0; i < memorySize; i++) {
+      if (memoryFoodSources[(memoryStart + i) % memoryFoodSources.length] == index) return true;
     }
-    FoodSource returnFs = (FoodSource) ((Pair) normalisedProbabilities.get(index)).getKey();
-    if (memoryFoodSources.size() >= SimParameters.gorillaMemoryLength)
-      memoryFoodSources.removeNondestructively(0);
-    memoryFoodSources.add(returnFs);
+    return false;
+  }
 
-    returnFs.incrementHeat();
-    return returnFs;
+  /**
+   * Adds a food source to the memory, forgetting the oldest one if the memory is full. A food
+   * source already remembered isn't added again, so its weight is only excluded once.
+   */
+  private void remember(int index) {
+    if (isRemembered(index)) return;
+    if (memorySize == memoryFoodSources.length) {
+      memoryStart = (memoryStart + 1) % memoryFoodSources.length;
+      memorySize--;
+    }
+    memoryFoodSources[(memoryStart + memorySize) % memoryFoodSources.length] = index;
+    memorySize++;
   }
 
-  private double calculateProbabilityDistance(double x1, double y1, double x2, double y2) {
-    double distance = Math.sqrt(Math.pow(x2 - x1, 2) + Math.pow(y2 - y1, 2));
-    return 1 / distance;
+  private static double calculateProbabilityDistance(double x1, double y1, double x2, double y2) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    return 1 / Math.sqrt(dx * dx + dy * dy);
   }
 
-  private int infect(SimState state, int numberOfInfectedSources, double transmissionProbability) {
+  /**
+   * Infects the susceptible gorillas of the group, using the kernel set in the parameters to draw
+   * how many of them get the virus.
+   *
+   * @return amount of new infections
+   */
+  int infect(SimState state, int numberOfInfectedSources, double transmissionProbability) {
+    if (numberOfInfectedSources <= 0 || susceptibleCount <= 0) {
+      return 0;
+    }
+
     int infected = 0;
 
-    for (int i = 0; i < numberOfInfectedSources && susceptibleCount > 0; i++) {
-      for (int j = 0, k = susceptibleCount; j < k && susceptibleCount > 0; j++) {
-        boolean choose = randomChoose(state, transmissionProbability);
-        if (choose) {
-          susceptibleCount--;
-          infectedCount++;
-          infectionTimer.add(SimParameters.infectionTime);
-          infected++;
-          ((Apes) state).stat.incrementTotalInfectedGorillas();
+    switch (parameters.infectionKernel) {
+      case BINOMIAL:
+        /*Each source infects Binomial(susceptible, p) of the gorillas still susceptible*/
+        for (int i = 0; i < numberOfInfectedSources && infected < susceptibleCount; i++) {
+          infected += Binomial.sample(random, susceptibleCount - infected, transmissionProbability);
         }
-      }
+        break;
+      case BINOMIAL_COLLAPSED:
+        /*A gorilla escapes the encounter only if it escapes every source*/
+        double escapeProbability = Math.pow(1 - transmissionProbability, numberOfInfectedSources);
+        infected = Binomial.sample(random, susceptibleCount, 1 - escapeProbability);
+        break;
+      default:
+        for (int i = 0; i < numberOfInfectedSources && infected < susceptibleCount; i++) {
+          for (int j = 0, k = susceptibleCount - infected; j < k; j++) {
+            if (randomChoose(state, transmissionProbability)) {
+              infected++;
+            }
+          }
+        }
+        break;
+    }
+
+    susceptibleCount -= infected;
+    infectedCount += infected;
+    infectionTimer.add(parameters.infectionTime, infected);
+    if (parameters.agentRandomStreams) {
+      pendingInfections += infected;
+    } else {
+      ((Apes) state).stat.addTotalInfectedGorillas(infected);
+      ((Apes) state).counters.infect(infected);
     }
 
     return infected;
   }
 
-  private void checkForDeaths(SimState state, List<Integer> infections) {
-    while (infections.remove(Integer.valueOf(0))) {
+  /** Adds the transitions kept while the group only touched its own state to the totals */
+  void reportPending(Apes apes) {
+    if (pendingInfections > 0) {
+      apes.stat.addTotalInfectedGorillas(pendingInfections);
+      apes.counters.infect(pendingInfections);
+      pendingInfections = 0;
+    }
+    if (pendingRecoveries > 0) {
+      apes.stat.addTotalRecoveredGorillas(pendingRecoveries);
+      apes.counters.recover(pendingRecoveries);
+      pendingRecoveries = 0;
+    }
+    if (pendingDeaths > 0) {
+      apes.stat.addTotalDeceasedGorillas(pendingDeaths);
+      apes.counters.die(pendingDeaths);
+      pendingDeaths = 0;
+    }
+  }
+
+  /** Resolves the infections whose timer ran out, either by recovery or death */
+  void checkForDeaths(SimState state) {
+    for (int i = infectionTimer.takeExpired(); i > 0; i--) {
       infectedCount--;
-      if (randomChoose(state, SimParameters.recoveryProbability)) {
+      if (randomChoose(state, parameters.recoveryProbability)) {
         recoveredCount++;
-        ((Apes) state).stat.incrementTotalRecoveredGorillas();
+        if (parameters.agentRandomStreams) {
+          pendingRecoveries++;
+        } else {
+          ((Apes) state).stat.incrementTotalRecoveredGorillas();
+          ((Apes) state).counters.recover(1);
+        }
       } else {
         populationCount--;
         deceasedCount++;
-        ((Apes) state).stat.incrementTotalDeceasedGorillas();
+        if (parameters.agentRandomStreams) {
+          pendingDeaths++;
+        } else {
+          ((Apes) state).stat.incrementTotalDeceasedGorillas();
+          ((Apes) state).counters.die(1);
+        }
         silverbackCounter--;
         if (silverbackCounter == 0) {
           hasSilverbackDied = true;
@@ -314,101 +679,51 @@ public class Ape implements Steppable {
     }
   }
 
-  private void decreaseInfectionTimer(List<Integer> infections) {
-    for (int i = 0; i < infections.size(); i++) {
-      int originalValue = infections.get(i);
-      infections.set(i, originalValue - 1);
-    }
-  }
-
-  private boolean disperse(SimState state) {
+  /**
+   * Moves every gorilla of the group to other active groups, chosen by the inverse of the distance
+   * to them. Each active group can take gorillas with the probability of dispersal.
+   *
+   * @return false if there was no group to disperse to
+   */
+  boolean disperse(SimState state) {
     /*Get static simState instance and cast as our subclass to get functions and member vars*/
     Apes apes = (Apes) state;
-    SparseGrid2D habitat = apes.habitat;
-
-    Bag allObjects = habitat.getAllObjects();
-    Bag currentApesProbabilities = new Bag(allObjects.size());
-    Int2D me = habitat.getObjectLocation(this);
-    double sum = 0;
-
-    for (int i = 0; i < allObjects.size(); i++) {
-      Object obj = allObjects.get(i);
-      //If the object is an ape, not inactive and the probability of dispersal returns true
-      if (obj != this && obj instanceof Ape && !((Ape) obj).groupInactive && randomChoose(state, SimParameters.probabilityOfDispersal)) {
-        Int2D objLocation = habitat.getObjectLocation(obj);
-        double probability = calculateProbabilityDistance(me.x, me.y, objLocation.x, objLocation.y);
-        currentApesProbabilities.add(new Pair<>(obj, probability));
-        sum += probability;
-      }
-    }
+    ActiveGroups activeGroups = apes.activeGroups;
 
-    if (currentApesProbabilities.isEmpty()) {
+    if (!activeGroups.prepareDispersal(this, parameters.probabilityOfDispersal, random)) {
       return false;
     }
 
-    /*Create a bag with FoodSource, Probability value pairs*/
-    Bag normalisedProbabilities = new Bag(neighbourFoodSources.size());
-    int size = currentApesProbabilities.size();
-    for (int i = 0; i < size; i++) {
-      Object obj = currentApesProbabilities.pop();
-      if (obj instanceof Pair) {
-        Ape ape = (Ape) ((Pair) obj).getKey();
-        Double value = (Double) ((Pair) obj).getValue() / sum;
-        normalisedProbabilities.add(new Pair<>(ape, value));
-      }
-    }
-
-    Bag apeOrder = new Bag();
-
-    for (int i = 0; i < populationCount; i++) {
-      /*Find the correct index according to probabilities*/
-      double randomDouble = apes.random.nextDouble();
-      double choose = 0;
-      int index = 0;
-
-      for (int j = 0; j < normalisedProbabilities.size(); j++) {
-        Object obj = normalisedProbabilities.get(j);
-        if (obj instanceof Pair) {
-          choose += (double) ((Pair) obj).getValue();
-          if (randomDouble < choose) {
-            index = j;
-            apeOrder.add(index);
-            break;
-          }
+    /*Gorillas keep their state when they move, so the counters of the habitat don't change*/
+    for (int i = 0, dispersing = populationCount; i < dispersing; i++) {
+      Ape ape = activeGroups.drawTarget(random);
+      populationCount--;
+      ape.populationCount++;
+      boolean chosen = false;
+      do{
+        double randomDouble = random.nextDouble();
+        if (susceptibleCount != 0 && randomDouble <= 1.0 / 3) {
+          ape.susceptibleCount++;
+          susceptibleCount--;
+          chosen = true;
+        } else if(infectedCount != 0 && randomDouble <= (1.0 / 3) * 2 && randomDouble > 1.0 / 3) {
+          ape.infectedCount++;
+          ape.infectionTimer.add(this.infectionTimer.removeSoonest());
+          infectedCount--;
+          chosen = true;
+        } else if(recoveredCount != 0 && randomDouble <= 1.0 && randomDouble > (1.0 / 3) * 2) {
+          ape.recoveredCount++;
+          recoveredCount--;
+          chosen = true;
         }
-      }
-    }
-
-    for (int i = 0; i < apeOrder.size(); i++) {
-        Ape ape = (Ape) ((Pair) normalisedProbabilities.get((int) apeOrder.get(i))).getKey();
-        populationCount--;
-        ape.populationCount++;
-        boolean chosen = false;
-        do{
-          double randomDouble = state.random.nextDouble();
-          if (susceptibleCount != 0 && randomDouble <= 1.0 / 3) {
-            ape.susceptibleCount++;
-            susceptibleCount--;
-            chosen = true;
-          } else if(infectedCount != 0 && randomDouble <= (1.0 / 3) * 2 && randomDouble > 1.0 / 3) {
-            ape.infectedCount++;
-            ape.infectionTimer.add(this.infectionTimer.remove(0));
-            infectedCount--;
-            chosen = true;
-          } else if(recoveredCount != 0 && randomDouble <= 1.0 && randomDouble > (1.0 / 3) * 2) {
-            ape.recoveredCount++;
-            recoveredCount--;
-            chosen = true;
-          }
-        }while(!chosen);
+      }while(!chosen);
     }
 
     return true;
   }
 
   private boolean randomChoose(SimState state, double probability) {
-    double random = ((Apes) state).random.nextDouble();
-    return random <= probability;
+    return random.nextDouble() <= probability;
   }
 
 }
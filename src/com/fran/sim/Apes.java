@@ -1,19 +1,18 @@
 package com.fran.sim;
 
-import com.fran.util.IOHandler;
 import com.fran.util.RecordPrinter;
 import com.fran.util.Stats;
+import sim.engine.Schedule;
 import sim.engine.SimState;
-import sim.field.grid.SparseGrid2D;
+import sim.engine.Steppable;
 import sim.util.Bag;
 import sim.util.Int2D;
-import sim.field.network.*;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Apes is the subclass implementation of the SimState module. This class will take care of the
@@ -22,25 +21,83 @@ import java.util.stream.Stream;
  * @author Francisco Caeiro
  */
 public class Apes extends SimState {
+  /** Ordering of the food sources in the schedule, they are updated before the apes of each day */
+  static final int FOOD_SOURCE_ORDERING = 0;
+  /** Ordering of the apes in the schedule */
+  static final int APE_ORDERING = 1;
+  /** Ordering of the contact phase, it resolves the contacts of each day once every ape moved */
+  static final int CONTACT_ORDERING = 2;
+  /** Ordering of the end of each day, the listeners are told about it once every ape has moved */
+  static final int RECORDER_ORDERING = 3;
   /** How big the y axis of the simulation will be */
-  private static final int simulationWidth = (SimParameters.foodSpreadingIntensity * 3);
+  private int simulationWidth;
   /** How big the x axis of the simulation will be */
-  private static final int simulationHeight = (SimParameters.foodSpreadingIntensity * 3);
+  private int simulationHeight;
+  /** Implementation the habitat was created with */
+  private HabitatType habitatType;
   /** Habitat represents the living space that the apes inhabit. */
-  SparseGrid2D habitat = new SparseGrid2D(simulationWidth, simulationHeight);
+  Habitat habitat;
+  /** Scratch space the groups of a cell are copied into */
+  Ape[] cellBuffer = new Ape[0];
+  /** Scratch space the food sources and their locations of a home range are copied into */
+  FoodSource[] foodSourceBuffer = new FoodSource[0];
+  Int2D[] locationBuffer = new Int2D[0];
+  /** Draws the cells the food sources are placed on, kept for the next run */
+  private final CellShuffle foodCells = new CellShuffle();
+  /** Food sources of the previous runs by placement order, reset in place by the next run */
+  FoodSource[] foodSourcePool = new FoodSource[0];
   /** Network that represents the interactions between the apes */
-  Network interactions = new Network(false);
+  ContactNetwork interactions = new ContactNetwork(0);
+  /** Resolves the contacts of every step at once, null unless parameters.contactPhase is set */
+  ContactPhase contactPhase;
+  /** True if the groups of this run are stepped at once by the groupStepper */
+  private boolean parallelGroups;
+  /** Threads the groups are stepped on, null unless a run stepping them in parallel was started */
+  ForkJoinPool groupPool;
+  /** Steps every group at once on the groupPool */
+  private final GroupStepper groupStepper = new GroupStepper();
+  /** Every group of gorillas, active or not, indexed by id. Kept and reset by the next run */
+  Ape[] groups = new Ape[0];
+  /** Index of the ape groups that are still active, used to find where gorillas can disperse */
+  ActiveGroups activeGroups = new ActiveGroups(0);
   /** Aids the generation of ape groups. Used to shuffle food sources and assign to ape group */
-  private Bag foodSources = new Bag(SimParameters.amountFoodSources);
+  private Bag foodSources = new Bag();
+  /** Scratch copy of foodSources the groups are assigned from */
+  private Bag shuffledFoodSources = new Bag();
   /** Object gorilla group interactions into a file */
   public RecordPrinter recordPrinter = new RecordPrinter();
+  /** Parameters of this run, frozen from SimSettings.parameters when the run starts */
+  public RunParameters parameters;
+  /** Row of SimLab factors applied to this run, null if the run is not driven by SimLab */
+  private double[] factors;
+  /** Landscape the run is restored from, null to build it from the seed */
+  public Checkpoint landscape;
+  /** S/I/R/D counts of every day, null unless SimSettings.enableTimeSeries is set */
+  public TimeSeriesRecorder timeSeries;
+  /** Live S/I/R/D totals of the habitat, kept up to date by the groups */
+  EpidemicCounters counters = new EpidemicCounters();
+  /** Told about the end of every day of every run, together with the time series */
+  private final List<EpidemicListener> listeners = new ArrayList<>();
+  /** Scheduled at the end of every day when there is someone to tell about it */
+  private final Steppable endOfDay = simState -> endDay();
 
   public Stats stat;
 
   /** Constructor that takes in seed and feeds in to super SimState constructor */
   public Apes(long seed) {
+    this(seed, null);
+  }
+
+  /**
+   * Constructor that takes in seed and the row of factors this run will use
+   *
+   * @param seed seed used when the random number generator is initialized
+   * @param factors row of SimLab factors, null to use SimSettings.parameters as they are
+   */
+  public Apes(long seed, double[] factors) {
     /* Seed is used when random number generator is initialized*/
     super(seed);
+    this.factors = factors;
   }
 
   /**
@@ -50,26 +107,161 @@ public class Apes extends SimState {
     this(System.currentTimeMillis());
   }
 
+  /**
+   * Prepares a finished run to be started again with another seed and row of factors. The habitat,
+   * groups, food sources and buffers of this run are kept and reset in place by start().
+   */
+  void prepare(long seed, double[] factors) {
+    setSeed(seed);
+    this.factors = factors;
+  }
+
   /**
    * Function called at the start of running the model. Clears and initializes the objects in the
    * simulation.
    */
   public void start() {
+    startLandscape();
+
+    /*Only runs that step are given threads, a landscape that is only captured doesn't need them*/
+    if (parallelGroups) {
+      int threads = SimSettings.threadsPerRun;
+      if (groupPool == null || groupPool.getParallelism() != threads) {
+        shutdownGroupPool();
+        groupPool = new ForkJoinPool(threads);
+      }
+    }
+
+    /*Interactions are only streamed to a file when watching a single run*/
+    if (SimSettings.enableRecordPrinting && !SimSettings.useSimlab) {
+      try {
+        recordPrinter.open();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+
+    /*Agents only pick their random numbers once the landscape, and the generator, are in place*/
+    for (int i = 0; i < foodSources.size(); i++) foodSourcePool[i].setRandom(this, i);
+    for (Ape ape : groups) ape.setRandom(this);
+
+    indexCase(1);
+
+    if (SimSettings.enableTimeSeries) {
+      if (timeSeries == null) {
+        timeSeries = new TimeSeriesRecorder(SimSettings.numberOfSteps);
+      } else {
+        timeSeries.clear();
+      }
+    } else {
+      timeSeries = null;
+    }
+    if (timeSeries != null || !listeners.isEmpty()) {
+      schedule.scheduleRepeating(Schedule.EPOCH, RECORDER_ORDERING, endOfDay, 1.0);
+    }
+  }
+
+  /** Stops the threads the groups were stepped on, the next run started creates them again */
+  public void shutdownGroupPool() {
+    if (groupPool != null) {
+      groupPool.shutdown();
+      groupPool = null;
+    }
+  }
+
+  /** Adds a listener told about the end of every day, from the next run started on */
+  public void addEpidemicListener(EpidemicListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeEpidemicListener(EpidemicListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** Tells the time series and the listeners about the day that just ended */
+  private void endDay() {
+    if (timeSeries != null) timeSeries.dayEnded(this, counters);
+    for (int i = 0; i < listeners.size(); i++) listeners.get(i).dayEnded(this, counters);
+    counters.endDay();
+  }
+
+  /**
+   * First part of start(). Places the food sources and the groups of gorillas, either from the seed
+   * or from the landscape checkpoint, and stops before any gorilla is infected.
+   */
+  void startLandscape() {
     /*Initializes RNG generator as well as resetting things like scheduler */
     super.start();
 
-    /*Clear the hash map in the habitat when restarted*/
-    habitat.clear();
-    interactions.clear();
-    foodSources.clear();
+    /*Copies the shared parameters, applies the factors of this run and freezes the result*/
+    SimParameters runSettings = new SimParameters(SimSettings.parameters);
+    SimSettings.setFactors(runSettings, factors);
+    parameters = new RunParameters(runSettings);
 
-    SimSettings.setFactors();
+    if (parameters.worldSize < parameters.foodSpreadingIntensity * 2 + 1) {
+      System.out.println(
+          "Settings Error: World size smaller than the area the food sources are placed in.");
+      System.exit(-1);
+    }
 
-    /*Initialize food and apes*/
-    initializeFoodSource();
-    initializeApeGroups();
+    /*Clear the habitat when restarted, or create it if the size or the implementation changed*/
+    simulationWidth = parameters.worldSize;
+    simulationHeight = parameters.worldSize;
+    if (habitat == null
+        || habitat.getWidth() != simulationWidth
+        || habitat.getHeight() != simulationHeight
+        || habitatType != parameters.habitatType) {
+      habitat = parameters.habitatType.create(simulationWidth, simulationHeight);
+      habitatType = parameters.habitatType;
+    } else {
+      habitat.clear();
+    }
+    if (interactions.getGroups() != parameters.groupsOfGorillas) {
+      interactions = new ContactNetwork(parameters.groupsOfGorillas);
+    } else {
+      interactions.clear();
+    }
+    activeGroups.clear();
+    foodSources.clear();
+    counters.clear();
+    if (groups.length != parameters.groupsOfGorillas) {
+      groups = Arrays.copyOf(groups, parameters.groupsOfGorillas);
+    }
+    if (cellBuffer.length < groups.length) cellBuffer = new Ape[groups.length];
+    int homeRangeArea = (int) Math.pow(parameters.homerangeRadius * 2 + 1, 2);
+    if (foodSourceBuffer.length < homeRangeArea) {
+      foodSourceBuffer = new FoodSource[homeRangeArea];
+      locationBuffer = new Int2D[homeRangeArea];
+    }
+    /*Groups can only be stepped in parallel if each one draws its own random numbers*/
+    parallelGroups = parameters.agentRandomStreams && SimSettings.threadsPerRun > 1;
+    if (!parallelGroups) shutdownGroupPool();
+    if (parameters.contactPhase) {
+      if (contactPhase == null) {
+        contactPhase = new ContactPhase(groups.length);
+      } else {
+        contactPhase.clear();
+        contactPhase.ensureCapacity(groups.length);
+      }
+      schedule.scheduleRepeating(Schedule.EPOCH, CONTACT_ORDERING, contactPhase, 1.0);
+    } else {
+      contactPhase = null;
+    }
 
-    indexCase(1);
+    /*Initialize food and apes*/
+    if (landscape != null) {
+      landscape.restore(this);
+    } else {
+      initializeFoodSource();
+      initializeApeGroups();
+    }
+    if (parallelGroups) {
+      if (parameters.eventDrivenScheduling) {
+        schedule.scheduleOnce(Ape.firstEventTime(parameters), APE_ORDERING, groupStepper);
+      } else {
+        schedule.scheduleRepeating(Schedule.EPOCH, APE_ORDERING, groupStepper, 1.0);
+      }
+    }
   }
   /**
    * Initializes food sources by randomly clustering them around the centre. The
@@ -79,48 +271,119 @@ public class Apes extends SimState {
   private void initializeFoodSource() {
 
     /*Basic error checking to see if all food sources can be placed*/
-    int areaOfFoodSpread = (int) Math.pow((SimParameters.foodSpreadingIntensity * 2) + 1, 2);
-    if (SimParameters.amountFoodSources > areaOfFoodSpread) {
+    int areaOfFoodSpread = (int) Math.pow((parameters.foodSpreadingIntensity * 2) + 1, 2);
+    if (parameters.amountFoodSources > areaOfFoodSpread) {
       System.out.println(
           "Settings Error: Amount of food sources bigger than possible area to place them.");
       System.exit(-1);
     }
 
+    if (parameters.foodPlacement == FoodPlacement.SHUFFLED) {
+      placeShuffledFoodSources(areaOfFoodSpread);
+      return;
+    }
+
     /*Creates n amount of food sources*/
-    for (int i = 0; i < SimParameters.amountFoodSources; i++) {
+    for (int i = 0; i < parameters.amountFoodSources; i++) {
       int x, y;
       /*Keeps looping until find two unique pairs of x and y for the food source*/
       do {
         int centreX = simulationWidth / 2;
         int centreY = simulationHeight / 2;
-        x = centreX + (random.nextInt() % (SimParameters.foodSpreadingIntensity + 1));
-        y = centreY + (random.nextInt() % (SimParameters.foodSpreadingIntensity + 1));
+        x = centreX + (random.nextInt() % (parameters.foodSpreadingIntensity + 1));
+        y = centreY + (random.nextInt() % (parameters.foodSpreadingIntensity + 1));
       } while (x < 0
           || x >= simulationWidth
           || y < 0
           || y >= simulationHeight
-          || habitat.getObjectsAtLocation(x, y) != null);
+          || habitat.isOccupied(x, y));
 
       /*Initializes new food source, adds it to habitat and foodSource bag*/
-      Int2D location = new Int2D(x, y);
-      FoodSource food = new FoodSource(location);
-      habitat.setObjectLocation(food, location);
-      foodSources.add(food);
-      schedule.scheduleRepeating(food);
+      addFoodSource(pooledFoodSource(i, new Int2D(x, y)));
+    }
+  }
 
+  /**
+   * Places the food sources on distinct cells of the area, numbered row after row, drawn by a
+   * partial Fisher-Yates shuffle. Every cell is equally likely and each food source takes a single
+   * random number.
+   */
+  private void placeShuffledFoodSources(int areaOfFoodSpread) {
+    int side = parameters.foodSpreadingIntensity * 2 + 1;
+    int left = simulationWidth / 2 - parameters.foodSpreadingIntensity;
+    int top = simulationHeight / 2 - parameters.foodSpreadingIntensity;
+    foodCells.reset(areaOfFoodSpread, parameters.amountFoodSources);
+    for (int i = 0; i < parameters.amountFoodSources; i++) {
+      int cell = foodCells.next(random);
+      addFoodSource(pooledFoodSource(i, new Int2D(left + cell % side, top + cell / side)));
     }
   }
 
-  public void finish() {
-    SimSettings.statsFromRun.add(stat);
+  /** @return food source placed index-th, reset at the location, reusing the one of a past run */
+  FoodSource pooledFoodSource(int index, Int2D location) {
+    if (index >= foodSourcePool.length) {
+      int capacity = Math.max(index + 1, foodSourcePool.length * 2);
+      foodSourcePool = Arrays.copyOf(foodSourcePool, capacity);
+    }
+    FoodSource food = foodSourcePool[index];
+    if (food == null) {
+      food = new FoodSource(location, parameters);
+      foodSourcePool[index] = food;
+    } else {
+      food.reset(location, parameters);
+    }
+    return food;
+  }
 
-    if (SimSettings.useSimlab) {
-      try {
-        IOHandler.write("" + stat.getRatioOfDeceased());
-      } catch (IOException e) {
-        e.printStackTrace();
-        System.exit(-1);
-      }
+  /** @return group with the given id, reused from a past run. One of its resets must follow */
+  Ape pooledApe(int id) {
+    if (groups[id] == null) groups[id] = new Ape(id);
+    return groups[id];
+  }
+
+  /** Places a food source in the habitat and adds it to the schedule */
+  void addFoodSource(FoodSource food) {
+    habitat.addFoodSource(food);
+    foodSources.add(food);
+    if (parameters.eventDrivenScheduling) {
+      schedule.scheduleOnce(food.firstEventTime(), FOOD_SOURCE_ORDERING, food);
+    } else {
+      schedule.scheduleRepeating(Schedule.EPOCH, FOOD_SOURCE_ORDERING, food, 1.0);
+    }
+  }
+
+  /** @return food sources of the habitat, in the order they were placed */
+  Bag getFoodSources() {
+    return foodSources;
+  }
+
+  /**
+   * Places a group at its food source and adds it to the schedule.
+   */
+  void addApeGroup(Ape ape) {
+    groups[ape.getId()] = ape;
+    counters.addSusceptible(ape.susceptibleCount);
+    habitat.addApe(ape);
+    activeGroups.add(ape);
+    /*Adds each agent to the scheduler* to be stepped, either every day or on its first move*/
+    if (parallelGroups) {
+      /*The group stepper steps every group at once*/
+    } else if (parameters.eventDrivenScheduling) {
+      schedule.scheduleOnce(ape.firstEventTime(), APE_ORDERING, ape);
+    } else {
+      schedule.scheduleRepeating(Schedule.EPOCH, APE_ORDERING, ape, 1.0);
+    }
+  }
+
+  /**
+   * Function called at the end of the run. The results are collected by the BatchRunner, so that
+   * runs executed at the same time can still be written in order.
+   */
+  public void finish() {
+    try {
+      recordPrinter.printToFile();
+    } catch (IOException e) {
+      e.printStackTrace();
     }
 
     /*System.out.println(
@@ -144,37 +407,46 @@ public class Apes extends SimState {
   private void initializeApeGroups() {
     /*Throws an error if more gorillas then food sources. This is problem due to not being able to assign all
     gorilla groups a unique food source*/
-    if (SimParameters.groupsOfGorillas > SimParameters.amountFoodSources) {
+    if (parameters.groupsOfGorillas > parameters.amountFoodSources) {
       System.out.println(
           "Settings Error: Amount of gorilla groups can't be larger than amount of food sources.");
       System.exit(-2);
     }
 
     /*Creates a copy and randomly shuffles our foodSources bag*/
-    Bag foodSourceLocations = new Bag(foodSources);
+    Bag foodSourceLocations = shuffledFoodSources;
+    foodSourceLocations.clear();
+    foodSourceLocations.addAll(foodSources);
     foodSourceLocations.shuffle(random);
 
     int sumOfGorillaPopulation = 0;
 
     /*Loop creates n amount of groups*/
-    for (int i = 0; i < SimParameters.groupsOfGorillas; i++) {
+    for (int i = 0; i < parameters.groupsOfGorillas; i++) {
       /*Pops random food source and sets Apes initial location to it*/
       FoodSource fs = (FoodSource) foodSourceLocations.pop();
-      Ape ape = new Ape(this, fs.location);
-      habitat.setObjectLocation(ape, fs.location.x, fs.location.y);
-      /*Links a network node to each individual ape*/
-      interactions.addNode(ape);
-      /*Adds each agent to the scheduler* to be stepped*/
-      schedule.scheduleRepeating(ape);
+      Ape ape = pooledApe(i);
+      ape.reset(this, parameters, fs.location);
+      addApeGroup(ape);
 
       sumOfGorillaPopulation += ape.getPopulation();
     }
 
-    stat = new Stats(sumOfGorillaPopulation);
+    stat = new Stats(parameters, sumOfGorillaPopulation);
 
     // System.out.println("Gorilla Density per km^2 : " + stat.getGorillaDensity());
   }
 
+  /**
+   * Once no gorilla is infected, only a chimpanzee visit can bring the virus back. Without visits
+   * no gorilla can be infected, recover or die anymore, so the Stats of the run are final.
+   *
+   * @return true if the epidemic is extinct and can't start again
+   */
+  public boolean isEpidemicExtinct() {
+    return counters.getInfected() == 0 && parameters.chimpanzeeEncounter <= 0;
+  }
+
   /**
    * Function called on setup to randomly place infections around the board.
    *
@@ -182,55 +454,34 @@ public class Apes extends SimState {
    */
   public void indexCase(int numberOfInitialInfections) {
     // TODO Ensure that each infection placement is unique
-    Stream<Object> stream = habitat.getAllObjects().stream();
-    Bag apes = new Bag();
-    apes.addAll(stream.filter(obj -> obj instanceof Ape).collect(Collectors.toList()));
-    Ape ape = (Ape) apes.get(random.nextInt(apes.size()));
+    Ape ape = groups[random.nextInt(groups.length)];
     ape.susceptibleCount--;
     ape.infectedCount++;
+    counters.infect(1);
     stat.incrementTotalInfectedGorillas();
-    ape.infectionTimer.add(SimParameters.infectionTime);
+    ape.infectionTimer.add(parameters.infectionTime);
   }
 
-  public static void main(String[] args) {
-    /* doLoop steps:
-    Create instance of SimState subclass and initialize random number generator ->
-    Call start() from your subclass ->
-    Repeatedly call step() ->
-    When schedule entirely empty of agents call finish() to clean up
-     */
-    IOHandler.input = new File(SimSettings.inputFile);
-    IOHandler.output = new File(SimSettings.outputFile);
-    SimSettings.useSimlab = true;
+  /** Java Bean to display the gorillas of the habitat that can still be infected */
+  public int getSusceptibleGorillas() {
+    return counters.getSusceptible();
+  }
 
-    try {
-      IOHandler.writeHeader();
-    } catch (IOException e) {
-      e.printStackTrace();
-      System.exit(-1);
-    }
-    try {
-      IOHandler.read();
-    } catch (IOException e) {
-      e.printStackTrace();
-      System.exit(-1);
-    }
+  /** Java Bean to display the gorillas of the habitat infected right now */
+  public int getInfectedGorillas() {
+    return counters.getInfected();
+  }
 
-    String[] parameters = {
-      "-until",
-      "" + SimSettings.numberOfSteps,
-      "-repeat",
-      "" + SimSettings.numberOfRuns,
-      "-seed",
-      "" + SimSettings.seed
-    };
+  public int getRecoveredGorillas() {
+    return counters.getRecovered();
+  }
 
-    doLoop(Apes.class, parameters);
+  public int getDeceasedGorillas() {
+    return counters.getDeceased();
+  }
 
-    /* Since the framework uses threads, exit(0) has to be called, just in case
-    you forget to turn your user threads into daemon threads. Daemon threads do not prevent
-    the JVM from shutting down, whilst user threads do.
-     */
-    System.exit(0);
+  /** Runs a SimLab batch from the command line, see ApesCommand for the options */
+  public static void main(String[] args) {
+    ApesCommand.main(args);
   }
 }
@@ -0,0 +1,178 @@
+package com.fran.sim;
+
+import com.fran.util.IOHandler;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * ApesCommand is the headless entry point used for SimLab batches. Every setting of the batch and
+ * every model parameter is read from the command line, so sweeps can be launched without changing
+ * SimSettings. It never touches the GUI classes, so no AWT or JavaFX classes are loaded.
+ *
+ * @author Francisco Caeiro
+ */
+@Command(
+    name = "apes",
+    mixinStandardHelpOptions = true,
+    showDefaultValues = true,
+    description = "Runs a batch of simulations with the factors of a SimLab sample file.")
+public class ApesCommand implements Callable<Integer> {
+  @Option(
+      names = {"-i", "--input"},
+      paramLabel = "FILE",
+      description = "SimLab sample file used to set the factors every run")
+  File input = new File(SimSettings.inputFile);
+
+  @Option(
+      names = {"-o", "--output"},
+      paramLabel = "FILE",
+      description = "Output file the results of the runs are appended to")
+  File output = new File(SimSettings.outputFile);
+
+  @Option(
+      names = {"-r", "--runs"},
+      description = "Amount of runs, one per row of the sample file")
+  int numberOfRuns = SimSettings.numberOfRuns;
+
+  @Option(
+      names = {"-s", "--steps"},
+      description = "Amount of steps per run")
+  int numberOfSteps = SimSettings.numberOfSteps;
+
+  @Option(names = "--seed", description = "Seed of the first run, run n uses seed + n")
+  int seed = SimSettings.seed;
+
+  @Option(
+      names = {"-t", "--threads"},
+      description = "Amount of runs executed at the same time")
+  int numberOfThreads = SimSettings.numberOfThreads;
+
+  @Option(
+      names = "--time-series",
+      paramLabel = "FILE",
+      description = "Records the S/I/R/D counts of every day of every run into a binary file")
+  File timeSeries;
+
+  @Option(
+      names = "--landscape",
+      paramLabel = "FILE",
+      description =
+          "Runs every run on the landscape saved in a checkpoint file. If the file doesn't exist,"
+              + " the landscape of the first run is saved into it")
+  File landscape;
+
+  @Option(
+      names = "--landscapes",
+      description =
+          "Amount of landscapes the runs are spread over, each generated once and shared."
+              + " 0 generates a new landscape every run")
+  int numberOfLandscapes = SimSettings.numberOfLandscapes;
+
+  @Option(
+      names = "--keep-run-stats",
+      description = "Keeps the statistics of every run in memory instead of only their summary")
+  boolean keepStatsFromRun = SimSettings.keepStatsFromRun;
+
+  @Option(
+      names = "--threads-per-run",
+      description =
+          "Amount of threads the groups of a single run are stepped on, needs"
+              + " --agent-random-streams")
+  int threadsPerRun = SimSettings.threadsPerRun;
+
+  @Option(
+      names = "--full-runs",
+      description =
+          "Steps every run up to the step limit, even once its epidemic is extinct. Runs only end"
+              + " early when --chimpanzee-encounter is 0, as chimpanzee visits can always infect"
+              + " gorillas again, and never while interactions are recorded to a file")
+  boolean fullRuns = !SimSettings.stopExtinctRuns;
+
+  /** Model parameters every run starts from */
+  @Mixin SimParameters parameters = SimSettings.parameters;
+
+  @Override
+  public Integer call() {
+    SimSettings.inputFile = input.getPath();
+    SimSettings.outputFile = output.getPath();
+    SimSettings.numberOfRuns = numberOfRuns;
+    SimSettings.numberOfSteps = numberOfSteps;
+    SimSettings.seed = seed;
+    SimSettings.numberOfThreads = numberOfThreads;
+    SimSettings.parameters = parameters;
+    SimSettings.keepStatsFromRun = keepStatsFromRun;
+    SimSettings.stopExtinctRuns = !fullRuns;
+    SimSettings.threadsPerRun = threadsPerRun;
+    SimSettings.numberOfLandscapes = numberOfLandscapes;
+    if (timeSeries != null) {
+      SimSettings.enableTimeSeries = true;
+      SimSettings.timeSeriesFile = timeSeries.getPath();
+    }
+    SimSettings.useSimlab = true;
+
+    /* Each run goes through the same steps doLoop used:
+    Create instance of SimState subclass and initialize random number generator ->
+    Call start() from your subclass ->
+    Repeatedly call step() ->
+    When the run reaches the step limit call finish() to clean up
+    The runs are independent, so BatchRunner executes them on several threads at the same time.
+     */
+    if (threadsPerRun > 1 && !parameters.agentRandomStreams) {
+      System.out.println(
+          "Settings Error: Stepping the groups of a run in parallel needs --agent-random-streams.");
+      return -1;
+    }
+
+    IOHandler.input = input;
+    IOHandler.output = output;
+
+    try {
+      IOHandler.writeHeader();
+      IOHandler.read();
+      Checkpoint checkpoint = null;
+      if (landscape != null) {
+        checkpoint = landscape.exists() ? Checkpoint.read(landscape) : createLandscape();
+      }
+
+      BatchRunner runner =
+          new BatchRunner(numberOfRuns, numberOfSteps, seed, numberOfThreads, checkpoint);
+      runner.run();
+    } catch (IOException | InterruptedException e) {
+      e.printStackTrace();
+      return -1;
+    } finally {
+      /*Every run claimed its row of factors, or the batch failed*/
+      try {
+        IOHandler.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+
+    System.out.println(SimSettings.statistics);
+    return 0;
+  }
+
+  /** Generates the landscape of the first run and saves it into the landscape file */
+  private Checkpoint createLandscape() throws IOException {
+    Checkpoint checkpoint = Checkpoint.create(seed, null);
+    checkpoint.write(landscape);
+    return checkpoint;
+  }
+
+  public static void main(String[] args) {
+    int exitCode = new CommandLine(new ApesCommand()).execute(args);
+
+    /* Worker threads are shut down by the runner, but exit is still called just in case
+    any user threads are left behind. Daemon threads do not prevent the JVM from shutting down,
+    whilst user threads do.
+     */
+    System.exit(exitCode);
+  }
+}
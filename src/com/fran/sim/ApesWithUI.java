@@ -138,7 +138,7 @@ public class ApesWithUI extends GUIState {
         };
 
     /*Draw smaller apes first, as ovals and give unique color using hashcode*/
-    habitatPortrayal.setField(apes.habitat);
+    habitatPortrayal.setField(apes.habitat.getPortrayalField());
     habitatPortrayal.setDrawPolicy(drawSmallerFirst);
     habitatPortrayal.setPortrayalForClass(
         Ape.class,
@@ -146,7 +146,7 @@ public class ApesWithUI extends GUIState {
           @Override
           public void draw(Object object, Graphics2D graphics, DrawInfo2D info) {
             if (object instanceof Ape) {
-              scale = (double) ((Ape) object).getPopulation() / (double) (SimParameters.maxPopulation);
+              scale = (double) ((Ape) object).getPopulation() / (double) (apes.parameters.maxPopulation);
               // give unique border to each group for identifying purpose
               paint =
                   new Color(
@@ -187,7 +187,7 @@ public class ApesWithUI extends GUIState {
                 } else paint = new Color(67, 162, 202);
               } else {
                 // If the food source has infected a group in the current step draw red
-                if (((FoodSource) object).infectedInCurrentStep) {
+                if (((FoodSource) object).hasInfectedAt(state.schedule.getTime())) {
                   paint = Color.red;
                 }
                 // Else make food source blue
@@ -213,7 +213,9 @@ public class ApesWithUI extends GUIState {
     Apes apes = (Apes) state;
 
     /*Draw edges as blue and slowly turn red as more interactions happen*/
-    interactionsPortrayal.setField(new SpatialNetwork2D(apes.habitat, apes.interactions));
+    interactionsPortrayal.setField(
+        new SpatialNetwork2D(
+            apes.habitat.getPortrayalField(), apes.interactions.getPortrayalNetwork(apes.groups)));
     interactionsPortrayal.setPortrayalForAll(
         new SimpleEdgePortrayal2D() {
           @Override
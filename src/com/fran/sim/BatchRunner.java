@@ -0,0 +1,193 @@
+package com.fran.sim;
+
+import com.fran.util.IOHandler;
+import com.fran.util.ResultsWriter;
+import com.fran.util.RunStatistics;
+import com.fran.util.Stats;
+import com.fran.util.TimeSeriesWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BatchRunner replaces MASON's doLoop for the SimLab runs. Runs are independent from each other, so
+ * they are executed at the same time on a pool of worker threads. Each run gets its own seed and
+ * row of factors, and hands its result to a ResultsWriter that writes them in the same order the
+ * sequential loop used. Every worker folds the Stats of its runs into its own RunStatistics, which
+ * are merged into SimSettings.statistics once the batch is over. If enabled, the S/I/R/D curve of
+ * every run is written to a TimeSeriesWriter. Runs can also share a single landscape, restored from
+ * a Checkpoint instead of being generated by every run, or be spread over a few landscapes kept in
+ * a LandscapeCache.
+ *
+ * @author Francisco Caeiro
+ */
+public class BatchRunner {
+  /** Amount of runs to execute */
+  private final int numberOfRuns;
+  /** Amount of steps per run */
+  private final int numberOfSteps;
+  /** Seed of the first run. Run n uses seed + n, the same as doLoop with -repeat */
+  private final long seed;
+  /** Size of the worker pool */
+  private final int numberOfThreads;
+  /** Landscape every run is restored from, null if each run generates its own */
+  private final Checkpoint landscape;
+
+  public BatchRunner(int numberOfRuns, int numberOfSteps, long seed, int numberOfThreads) {
+    this(numberOfRuns, numberOfSteps, seed, numberOfThreads, null);
+  }
+
+  public BatchRunner(
+      int numberOfRuns, int numberOfSteps, long seed, int numberOfThreads, Checkpoint landscape) {
+    this.numberOfRuns = numberOfRuns;
+    this.numberOfSteps = numberOfSteps;
+    this.seed = seed;
+    this.numberOfThreads = Math.max(1, numberOfThreads);
+    this.landscape = landscape;
+  }
+
+  /**
+   * Submits every run to the worker pool. Each run writes its result as soon as it finishes, the
+   * results writer puts them back in run order.
+   */
+  public void run() throws IOException, InterruptedException {
+    ExecutorService pool =
+        Executors.newFixedThreadPool(
+            numberOfThreads,
+            runnable -> {
+              Thread thread = new Thread(runnable, "apes-worker");
+              thread.setDaemon(true);
+              return thread;
+            });
+    ResultsWriter results = SimSettings.useSimlab ? IOHandler.openResults() : null;
+    int numberOfLandscapes = SimSettings.numberOfLandscapes;
+    LandscapeCache landscapes =
+        landscape == null && numberOfLandscapes > 0 ? new LandscapeCache(numberOfLandscapes) : null;
+    TimeSeriesWriter curves =
+        SimSettings.enableTimeSeries
+            ? new TimeSeriesWriter(new File(SimSettings.timeSeriesFile))
+            : null;
+    List<RunStatistics> workerStatistics = Collections.synchronizedList(new ArrayList<>());
+    /*Every worker keeps its simulation and resets it in place for each of its runs*/
+    List<Apes> workerSimulations = Collections.synchronizedList(new ArrayList<>());
+    ThreadLocal<Apes> simulations =
+        ThreadLocal.withInitial(
+            () -> {
+              Apes apes = new Apes(seed);
+              workerSimulations.add(apes);
+              return apes;
+            });
+    ThreadLocal<RunStatistics> statistics =
+        ThreadLocal.withInitial(
+            () -> {
+              RunStatistics worker = new RunStatistics();
+              workerStatistics.add(worker);
+              return worker;
+            });
+
+    IOException failure = null;
+    try {
+      List<Future<Stats>> runs = new ArrayList<>(numberOfRuns);
+      for (int i = 0; i < numberOfRuns; i++) {
+        int runIndex = i;
+        runs.add(
+            pool.submit(
+                () -> {
+                  /*Each run claims the row of factors with its own index*/
+                  double[] factors =
+                      SimSettings.useSimlab ? IOHandler.getRowOfFactors(runIndex) : null;
+                  /*Run n is on the landscape of run n % numberOfLandscapes, with its own seed*/
+                  Checkpoint runLandscape =
+                      landscapes != null
+                          ? landscapes.get(seed + runIndex % numberOfLandscapes, factors)
+                          : landscape;
+                  Apes apes = runOnce(simulations.get(), seed + runIndex, factors, runLandscape);
+                  Stats stat = apes.stat;
+                  if (results != null) {
+                    results.write(runIndex, "" + stat.getRatioOfDeceased());
+                  }
+                  if (curves != null) {
+                    TimeSeriesRecorder curve = apes.timeSeries;
+                    curves.write(
+                        runIndex,
+                        curve.getSteps(),
+                        curve.getSusceptible(),
+                        curve.getInfected(),
+                        curve.getRecovered(),
+                        curve.getDeceased());
+                  }
+                  statistics.get().add(stat);
+                  return SimSettings.keepStatsFromRun ? stat : null;
+                }));
+      }
+
+      for (Future<Stats> run : runs) {
+        Stats stat = run.get();
+        if (stat != null) {
+          SimSettings.statsFromRun.add(stat);
+        }
+      }
+      /*Every run finished, so each worker's statistics are complete*/
+      synchronized (workerStatistics) {
+        for (RunStatistics worker : workerStatistics) {
+          SimSettings.statistics.merge(worker);
+        }
+      }
+    } catch (ExecutionException e) {
+      failure = new IOException("Simulation run failed", e.getCause());
+      throw failure;
+    } finally {
+      pool.shutdownNow();
+      synchronized (workerSimulations) {
+        for (Apes apes : workerSimulations) apes.shutdownGroupPool();
+      }
+      if (results != null) {
+        /*The runs missing from the results are added to the failure of the batch, if any*/
+        try {
+          results.close();
+        } catch (IOException e) {
+          if (failure == null) throw e;
+          failure.addSuppressed(e);
+        }
+      }
+      if (curves != null) {
+        curves.close();
+      }
+    }
+  }
+
+  /**
+   * Executes a single run from start to finish.
+   *
+   * @param apes simulation of the worker, reused from its previous run
+   * @param runSeed seed of the run
+   * @param factors row of factors of the run, null to use the default parameters
+   * @param runLandscape landscape the run is restored from, null to generate it
+   * @return the finished run
+   */
+  private Apes runOnce(Apes apes, long runSeed, double[] factors, Checkpoint runLandscape) {
+    apes.prepare(runSeed, factors);
+    apes.landscape = runLandscape;
+    apes.start();
+    boolean stopWhenExtinct = SimSettings.stopExtinctRuns && !apes.recordPrinter.isOpen();
+    while (apes.schedule.getTime() < numberOfSteps && apes.schedule.step(apes)) {
+      /*The remaining steps can't change the Stats, so only the time series is completed*/
+      if (stopWhenExtinct && apes.isEpidemicExtinct()) {
+        if (apes.timeSeries != null) {
+          /*A full run records every day from the epoch up to and including numberOfSteps*/
+          apes.timeSeries.fill(numberOfSteps + 1);
+        }
+        break;
+      }
+    }
+    apes.finish();
+    return apes;
+  }
+}
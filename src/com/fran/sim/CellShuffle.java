@@ -0,0 +1,94 @@
+package com.fran.sim;
+
+import ec.util.MersenneTwisterFast;
+
+import java.util.Arrays;
+
+/**
+ * CellShuffle draws distinct cells of an area, numbered from 0, with a partial Fisher-Yates shuffle
+ * of their numbers. Small areas keep the whole permutation in an int array, large ones only keep
+ * the positions the shuffle moved, in an open addressing table of primitive positions and cells.
+ * Either way, drawing doesn't allocate once the buffers are big enough, and a large area takes time
+ * and memory in proportion to the cells drawn rather than to its size.
+ *
+ * @author Francisco Caeiro
+ */
+class CellShuffle {
+  /** Largest area kept as a whole permutation, 256KB of cells */
+  static final int MAX_PERMUTATION_CELLS = 1 << 16;
+  /** Marks an empty slot of the table, positions are never negative */
+  private static final int EMPTY = -1;
+
+  /** Cell at every position of the shuffle, used when the area is small */
+  private int[] permutation = new int[0];
+  /** Position and cell of every position the shuffle moved, linear probing */
+  private int[] positions = new int[0];
+  private int[] cells = new int[0];
+
+  private int area;
+  private boolean usePermutation;
+  /** Cells drawn since the last reset */
+  private int drawn;
+
+  /**
+   * Starts a new shuffle, forgetting the cells drawn before.
+   *
+   * @param area amount of cells, drawn from 0 to area - 1
+   * @param draws most cells that will be drawn before the next reset
+   */
+  void reset(int area, int draws) {
+    this.area = area;
+    drawn = 0;
+    usePermutation = area <= MAX_PERMUTATION_CELLS;
+    if (usePermutation) {
+      if (permutation.length < area) permutation = new int[area];
+      for (int i = 0; i < area; i++) permutation[i] = i;
+    } else {
+      /*Every draw moves at most one position, so the table stays at most half full*/
+      int capacity = Integer.highestOneBit(Math.max(1, draws * 2 - 1)) << 1;
+      if (positions.length < capacity) {
+        positions = new int[capacity];
+        cells = new int[capacity];
+      }
+      Arrays.fill(positions, EMPTY);
+    }
+  }
+
+  /** @return a cell that wasn't drawn since the last reset, each one equally likely */
+  int next(MersenneTwisterFast random) {
+    int i = drawn++;
+    int j = i + random.nextInt(area - i);
+    /*Position i is never read again, so only position j has to take the cell i held*/
+    if (usePermutation) {
+      int cell = permutation[j];
+      permutation[j] = permutation[i];
+      return cell;
+    }
+    int cell = get(j);
+    if (j != i) put(j, get(i));
+    return cell;
+  }
+
+  /** @return cell at a position of the shuffle, the position itself if it was never moved */
+  private int get(int position) {
+    int slot = slot(position);
+    return positions[slot] == EMPTY ? position : cells[slot];
+  }
+
+  private void put(int position, int cell) {
+    int slot = slot(position);
+    positions[slot] = position;
+    cells[slot] = cell;
+  }
+
+  /** @return slot of a position, or the empty slot where it would go */
+  private int slot(int position) {
+    int mask = positions.length - 1;
+    long hash = position * 0x9E3779B97F4A7C15L;
+    int slot = (int) (hash >>> 32) & mask;
+    while (positions[slot] != EMPTY && positions[slot] != position) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+}
@@ -0,0 +1,324 @@
+package com.fran.sim;
+
+import com.fran.util.Stats;
+import ec.util.MersenneTwisterFast;
+import sim.util.Bag;
+import sim.util.Int2D;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Checkpoint holds an initialised landscape: where the food sources are, which of them are
+ * visible, and the population, silverback and home range of every group, together with the state
+ * of the random number generator once they were placed. Runs that only change epidemiological
+ * parameters can be forked from it instead of placing everything again. A checkpoint is never
+ * modified, so runs on several threads can share it: the locations and home range weights are
+ * shared, and the food sources and groups, which change during a run, are the ones pooled by the
+ * Apes of the run, reset in place from the checkpoint every time it is restored.
+ *
+ * <p>A run with the same seed as the checkpoint continues from the saved random number generator,
+ * so it is identical to a run initialised from scratch. A run with any other seed keeps its own
+ * generator, so several runs on the same landscape are still independent.
+ *
+ * <p>The binary format is a header with the landscape parameters, the food source coordinates, the
+ * groups with the indexes of the food sources in their home range, and the generator state.
+ *
+ * @author Francisco Caeiro
+ */
+public final class Checkpoint {
+  /** Marks the start of a checkpoint file */
+  private static final int MAGIC = 0x41504b32;
+  /** Marks the start of a file written before the world size and food placement were saved */
+  private static final int MAGIC_V1 = 0x41504b31;
+
+  /** Seed the landscape was generated with */
+  private final long seed;
+  /** Parameters that change how the landscape is generated */
+  private final int foodSpreadingIntensity;
+  private final int amountFoodSources;
+  private final int groupsOfGorillas;
+  private final int homerangeRadius;
+  private final int minPopulation;
+  private final int maxPopulation;
+  private final int worldSize;
+  private final FoodPlacement foodPlacement;
+
+  /** Location of every food source, in the order they were placed */
+  private final Int2D[] locations;
+  /** True if the food source is in the home range of some group */
+  private final boolean[] visible;
+
+  /** Initial population of every group, indexed by id */
+  private final int[] populations;
+  private final int[] silverbacks;
+  /** Index in the home range of the food source every group starts at */
+  private final int[] currentFoodSources;
+  /** Indexes of the food sources in the home range of every group */
+  private final int[][] homeRanges;
+  /** Cumulative weights of moving between the food sources of every home range */
+  private final double[][] homeRangeWeights;
+
+  /** Generator state once the landscape was placed */
+  private final MersenneTwisterFast random;
+
+  private Checkpoint(
+      long seed,
+      int[] landscapeParameters,
+      Int2D[] locations,
+      boolean[] visible,
+      int[] populations,
+      int[] silverbacks,
+      int[] currentFoodSources,
+      int[][] homeRanges,
+      MersenneTwisterFast random) {
+    this.seed = seed;
+    this.foodSpreadingIntensity = landscapeParameters[0];
+    this.amountFoodSources = landscapeParameters[1];
+    this.groupsOfGorillas = landscapeParameters[2];
+    this.homerangeRadius = landscapeParameters[3];
+    this.minPopulation = landscapeParameters[4];
+    this.maxPopulation = landscapeParameters[5];
+    this.worldSize = landscapeParameters[6];
+    this.foodPlacement = FoodPlacement.values()[landscapeParameters[7]];
+    this.locations = locations;
+    this.visible = visible;
+    this.populations = populations;
+    this.silverbacks = silverbacks;
+    this.currentFoodSources = currentFoodSources;
+    this.homeRanges = homeRanges;
+    this.random = random;
+
+    this.homeRangeWeights = new double[homeRanges.length][];
+    for (int i = 0; i < homeRanges.length; i++) {
+      Int2D[] homeRange = new Int2D[homeRanges[i].length];
+      for (int j = 0; j < homeRange.length; j++) homeRange[j] = locations[homeRanges[i][j]];
+      homeRangeWeights[i] = Ape.homeRangeWeights(homeRange);
+    }
+  }
+
+  /**
+   * Generates the landscape of a run and saves it.
+   *
+   * @param seed seed of the run
+   * @param factors row of SimLab factors of the run, null to use SimSettings.parameters as they are
+   */
+  public static Checkpoint create(long seed, double[] factors) {
+    Apes apes = new Apes(seed, factors);
+    apes.startLandscape();
+    return capture(apes);
+  }
+
+  /** Saves the landscape of a run that just went through startLandscape() */
+  static Checkpoint capture(Apes apes) {
+    RunParameters parameters = apes.parameters;
+    Bag foodSources = apes.getFoodSources();
+
+    Int2D[] locations = new Int2D[foodSources.size()];
+    boolean[] visible = new boolean[foodSources.size()];
+    Map<FoodSource, Integer> indexes = new IdentityHashMap<>();
+    for (int i = 0; i < foodSources.size(); i++) {
+      FoodSource food = (FoodSource) foodSources.get(i);
+      locations[i] = food.location;
+      visible[i] = food.visible;
+      indexes.put(food, i);
+    }
+
+    int groups = apes.groups.length;
+    int[] populations = new int[groups];
+    int[] silverbacks = new int[groups];
+    int[] currentFoodSources = new int[groups];
+    int[][] homeRanges = new int[groups][];
+    for (int i = 0; i < groups; i++) {
+      Ape ape = apes.groups[i];
+      populations[i] = ape.populationCount;
+      silverbacks[i] = ape.silverbackNumber;
+      currentFoodSources[i] = ape.currentFoodSource;
+      homeRanges[i] = new int[ape.neighbourFoodSources.length];
+      for (int j = 0; j < homeRanges[i].length; j++) {
+        homeRanges[i][j] = indexes.get(ape.neighbourFoodSources[j]);
+      }
+    }
+
+    return new Checkpoint(
+        apes.seed(),
+        landscapeParameters(parameters),
+        locations,
+        visible,
+        populations,
+        silverbacks,
+        currentFoodSources,
+        homeRanges,
+        (MersenneTwisterFast) apes.random.clone());
+  }
+
+  /**
+   * Places the saved landscape in a run that has just been cleared, in place of generating it.
+   *
+   * @throws IllegalArgumentException if the run generates landscapes with other parameters
+   */
+  void restore(Apes apes) {
+    RunParameters parameters = apes.parameters;
+    if (!matches(parameters)) {
+      throw new IllegalArgumentException(
+          "Checkpoint landscape doesn't match the parameters of the run");
+    }
+
+    for (int i = 0; i < locations.length; i++) {
+      FoodSource food = apes.pooledFoodSource(i, locations[i]);
+      if (visible[i]) food.setVisible();
+      apes.addFoodSource(food);
+    }
+
+    int sumOfGorillaPopulation = 0;
+    for (int i = 0; i < populations.length; i++) {
+      Ape ape = apes.pooledApe(i);
+      ape.reset(
+          parameters,
+          populations[i],
+          silverbacks[i],
+          homeRanges[i],
+          apes.foodSourcePool,
+          currentFoodSources[i],
+          homeRangeWeights[i]);
+      apes.addApeGroup(ape);
+      sumOfGorillaPopulation += populations[i];
+    }
+    apes.stat = new Stats(parameters, sumOfGorillaPopulation);
+
+    /*Only a run with the same seed continues the saved sequence of random numbers*/
+    if (apes.seed() == seed) {
+      apes.random = (MersenneTwisterFast) random.clone();
+    }
+  }
+
+  /** @return true if a run with the given parameters would generate this landscape */
+  public boolean matches(RunParameters parameters) {
+    return foodSpreadingIntensity == parameters.foodSpreadingIntensity
+        && amountFoodSources == parameters.amountFoodSources
+        && groupsOfGorillas == parameters.groupsOfGorillas
+        && homerangeRadius == parameters.homerangeRadius
+        && minPopulation == parameters.minPopulation
+        && maxPopulation == parameters.maxPopulation
+        && worldSize == parameters.worldSize
+        && foodPlacement == parameters.foodPlacement;
+  }
+
+  /** @return seed the landscape was generated with */
+  public long getSeed() {
+    return seed;
+  }
+
+  /** Writes the checkpoint into a binary file */
+  public void write(File file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeLong(seed);
+      out.writeInt(foodSpreadingIntensity);
+      out.writeInt(amountFoodSources);
+      out.writeInt(groupsOfGorillas);
+      out.writeInt(homerangeRadius);
+      out.writeInt(minPopulation);
+      out.writeInt(maxPopulation);
+      out.writeInt(worldSize);
+      out.writeInt(foodPlacement.ordinal());
+
+      out.writeInt(locations.length);
+      for (int i = 0; i < locations.length; i++) {
+        out.writeInt(locations[i].x);
+        out.writeInt(locations[i].y);
+        out.writeBoolean(visible[i]);
+      }
+
+      out.writeInt(populations.length);
+      for (int i = 0; i < populations.length; i++) {
+        out.writeInt(populations[i]);
+        out.writeInt(silverbacks[i]);
+        out.writeInt(currentFoodSources[i]);
+        out.writeInt(homeRanges[i].length);
+        for (int index : homeRanges[i]) out.writeInt(index);
+      }
+
+      random.writeState(out);
+    }
+  }
+
+  /** Reads a checkpoint written by write(File) */
+  public static Checkpoint read(File file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      int magic = in.readInt();
+      if (magic != MAGIC && magic != MAGIC_V1) {
+        throw new IOException("Not a checkpoint file: " + file);
+      }
+      long seed = in.readLong();
+      int[] landscapeParameters = new int[8];
+      int saved = magic == MAGIC ? landscapeParameters.length : 6;
+      for (int i = 0; i < saved; i++) {
+        landscapeParameters[i] = in.readInt();
+      }
+      /*Older files were all generated by rejection on a world three times the food spreading*/
+      if (magic == MAGIC_V1) {
+        landscapeParameters[6] = landscapeParameters[0] * 3;
+        landscapeParameters[7] = FoodPlacement.REJECTION.ordinal();
+      }
+
+      int amountFoodSources = in.readInt();
+      Int2D[] locations = new Int2D[amountFoodSources];
+      boolean[] visible = new boolean[amountFoodSources];
+      for (int i = 0; i < amountFoodSources; i++) {
+        locations[i] = new Int2D(in.readInt(), in.readInt());
+        visible[i] = in.readBoolean();
+      }
+
+      int groups = in.readInt();
+      int[] populations = new int[groups];
+      int[] silverbacks = new int[groups];
+      int[] currentFoodSources = new int[groups];
+      int[][] homeRanges = new int[groups][];
+      for (int i = 0; i < groups; i++) {
+        populations[i] = in.readInt();
+        silverbacks[i] = in.readInt();
+        currentFoodSources[i] = in.readInt();
+        homeRanges[i] = new int[in.readInt()];
+        for (int j = 0; j < homeRanges[i].length; j++) homeRanges[i][j] = in.readInt();
+      }
+
+      MersenneTwisterFast random = new MersenneTwisterFast(seed);
+      random.readState(in);
+
+      return new Checkpoint(
+          seed,
+          landscapeParameters,
+          locations,
+          visible,
+          populations,
+          silverbacks,
+          currentFoodSources,
+          homeRanges,
+          random);
+    }
+  }
+
+  private static int[] landscapeParameters(RunParameters parameters) {
+    return new int[] {
+      parameters.foodSpreadingIntensity,
+      parameters.amountFoodSources,
+      parameters.groupsOfGorillas,
+      parameters.homerangeRadius,
+      parameters.minPopulation,
+      parameters.maxPopulation,
+      parameters.worldSize,
+      parameters.foodPlacement.ordinal()
+    };
+  }
+}
@@ -0,0 +1,162 @@
+package com.fran.sim;
+
+import sim.field.network.Edge;
+import sim.field.network.Network;
+
+import java.util.Arrays;
+
+/**
+ * ContactNetwork counts how many times each pair of gorilla groups met, indexed by the ids of the
+ * groups. Small populations keep every pair in a triangular int matrix, large ones keep only the
+ * pairs that met in an open addressing table of primitive keys and counts. Either way, adding a
+ * contact doesn't allocate unless the table has to grow.
+ *
+ * <p>The GUI draws a MASON Network, which is only built once it is asked for and then kept in step
+ * with the counts, with the count of each pair as the info of its edge.
+ *
+ * @author Francisco Caeiro
+ */
+public class ContactNetwork {
+  /** Largest amount of groups kept in a matrix, about 8MB of counts */
+  static final int MAX_MATRIX_GROUPS = 2048;
+  /** Marks an empty slot of the table, no pair of groups has this key */
+  private static final long EMPTY = 0;
+
+  private final int groups;
+  /** Count of every pair (a, b) with a < b at b * (b - 1) / 2 + a, null if the table is used */
+  private final int[] matrix;
+  /** Key (a << 32 | b) with a < b and count of every pair that met, linear probing */
+  private long[] keys;
+  private int[] counts;
+  private int usedSlots;
+  /** Amount of pairs that met at least once */
+  private int pairs;
+
+  /** Copy of the counts drawn by the GUI, null until it is asked for */
+  private Network portrayalNetwork;
+
+  /** @param groups amount of groups, ids go from 0 to groups - 1 */
+  public ContactNetwork(int groups) {
+    this.groups = groups;
+    if (groups <= MAX_MATRIX_GROUPS) {
+      matrix = new int[Math.max(0, groups * (groups - 1) / 2)];
+    } else {
+      matrix = null;
+      keys = new long[1024];
+      counts = new int[keys.length];
+    }
+  }
+
+  /** @return amount of groups the network was created for */
+  public int getGroups() {
+    return groups;
+  }
+
+  /** @return amount of pairs of groups that met at least once */
+  public int getPairs() {
+    return pairs;
+  }
+
+  /** Removes every contact */
+  public void clear() {
+    if (matrix != null) {
+      Arrays.fill(matrix, 0);
+    } else {
+      Arrays.fill(keys, EMPTY);
+      Arrays.fill(counts, 0);
+      usedSlots = 0;
+    }
+    pairs = 0;
+    if (portrayalNetwork != null) {
+      portrayalNetwork.clear();
+      portrayalNetwork = null;
+    }
+  }
+
+  /** Adds a contact between two different groups */
+  public void addContact(Ape ape1, Ape ape2) {
+    int a = Math.min(ape1.getId(), ape2.getId());
+    int b = Math.max(ape1.getId(), ape2.getId());
+
+    int count;
+    if (matrix != null) {
+      count = ++matrix[b * (b - 1) / 2 + a];
+    } else {
+      int slot = slot(key(a, b));
+      if (keys[slot] == EMPTY) {
+        keys[slot] = key(a, b);
+        usedSlots++;
+      }
+      count = ++counts[slot];
+      if (usedSlots * 2 > keys.length) grow();
+    }
+    if (count == 1) pairs++;
+
+    if (portrayalNetwork != null) updatePortrayal(ape1, ape2, count);
+  }
+
+  /** @return amount of times two groups met */
+  public int getContacts(int id1, int id2) {
+    if (id1 == id2) return 0;
+    int a = Math.min(id1, id2);
+    int b = Math.max(id1, id2);
+    if (matrix != null) return matrix[b * (b - 1) / 2 + a];
+    return counts[slot(key(a, b))];
+  }
+
+  /**
+   * @param groups every group of the run, indexed by id
+   * @return network with a node per group and an edge per pair that met, for the GUI portrayals
+   */
+  public Network getPortrayalNetwork(Ape[] groups) {
+    if (portrayalNetwork == null) {
+      portrayalNetwork = new Network(false);
+      for (Ape ape : groups) portrayalNetwork.addNode(ape);
+      for (int b = 1; b < groups.length; b++) {
+        for (int a = 0; a < b; a++) {
+          int count = getContacts(a, b);
+          if (count > 0) portrayalNetwork.addEdge(groups[a], groups[b], count);
+        }
+      }
+    }
+    return portrayalNetwork;
+  }
+
+  private void updatePortrayal(Ape ape1, Ape ape2, int count) {
+    Edge edge = portrayalNetwork.getEdge(ape1, ape2);
+    if (edge == null) {
+      portrayalNetwork.addEdge(ape1, ape2, count);
+    } else {
+      portrayalNetwork.updateEdge(edge, ape1, ape2, count);
+    }
+  }
+
+  private static long key(int a, int b) {
+    return ((long) a << 32) | b;
+  }
+
+  /** @return slot of a key, or the empty slot where it would go */
+  private int slot(long key) {
+    int mask = keys.length - 1;
+    long hash = key * 0x9E3779B97F4A7C15L;
+    int slot = (int) (hash >>> 32) & mask;
+    while (keys[slot] != EMPTY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldCounts = counts;
+    keys = new long[oldKeys.length * 2];
+    counts = new int[keys.length];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = slot(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package com.fran.sim;
+
+import com.fran.util.ParallelFor;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ContactPhase resolves the contacts between groups of gorillas once per step, after every group
+ * moved. Groups that moved register themselves, and the phase visits each cell holding a mover
+ * once, resolving every pair of co-located groups where at least one of them moved exactly once.
+ * Cells and pairs are visited in id order, so the result doesn't depend on the order the groups
+ * were stepped in, and the work is proportional to the amount of co-located groups. With agent
+ * random streams, the phase first applies the effects each move has beyond its group, also in id
+ * order. If the run steps its groups in parallel, the cells are resolved in parallel too, and only
+ * the interactions are recorded in order on a single thread.
+ *
+ * @author Francisco Caeiro
+ */
+public class ContactPhase implements Steppable {
+  private static final Comparator<Ape> BY_ID = Comparator.comparingInt(Ape::getId);
+  /** Cells resolved by a single task when the contacts are resolved in parallel */
+  private static final int CELLS_PER_TASK = 16;
+
+  /** Groups that moved in the current step, registered from several threads when in parallel */
+  private Ape[] movers;
+  private final AtomicInteger amountMovers = new AtomicInteger();
+  /** Scratch space the groups of a cell are copied into */
+  private Ape[] cell;
+  /**
+   * Groups of every cell with a contact, cell after cell in id order, and whether each one moved.
+   * Cell c holds the groups from cellStarts[c] to cellStarts[c + 1].
+   */
+  private Ape[] members;
+  private boolean[] memberMoved;
+  private int[] cellStarts;
+  private int amountCells;
+
+  /** @param groups amount of groups of the run */
+  public ContactPhase(int groups) {
+    ensureCapacity(groups);
+  }
+
+  /** Registers a group that moved in the current step, groups can register at the same time */
+  void addMover(Ape ape) {
+    if (ape.moved) return;
+    ape.moved = true;
+    movers[amountMovers.getAndIncrement()] = ape;
+  }
+
+  public void step(SimState simState) {
+    Apes apes = (Apes) simState;
+    int amountMovers = this.amountMovers.get();
+    Arrays.sort(movers, 0, amountMovers, BY_ID);
+
+    /*With independent random streams the moves affect other groups here, in id order too*/
+    if (apes.parameters.agentRandomStreams) {
+      for (int m = 0; m < amountMovers; m++) {
+        movers[m].settleMove(simState);
+        movers[m].updateActivity(apes);
+      }
+    }
+
+    groupCells(apes, amountMovers);
+
+    /*Cells don't share groups, so each cell can be resolved on its own thread*/
+    ParallelFor.run(
+        apes.groupPool, 0, amountCells, CELLS_PER_TASK, c -> infectCell(simState, c));
+
+    for (int c = 0; c < amountCells; c++) {
+      int from = cellStarts[c];
+      int to = cellStarts[c + 1];
+      for (int i = from; i < to; i++) {
+        for (int j = i + 1; j < to; j++) {
+          if (memberMoved[i] || memberMoved[j]) members[i].recordContact(simState, members[j]);
+        }
+      }
+      for (int i = from; i < to; i++) {
+        members[i].reportPending(apes);
+        members[i] = null;
+      }
+    }
+
+    Arrays.fill(movers, 0, amountMovers, null);
+    this.amountMovers.set(0);
+    amountCells = 0;
+  }
+
+  /** Copies the groups of every cell holding a mover and another group, sorted by id */
+  private void groupCells(Apes apes, int amountMovers) {
+    amountCells = 0;
+    int amountMembers = 0;
+    for (int m = 0; m < amountMovers; m++) {
+      /*Movers are cleared once their cell is grouped, so every cell is only visited once*/
+      if (!movers[m].moved) continue;
+
+      int amountApes = apes.habitat.getApesAt(movers[m].getLocation(), cell);
+      if (amountApes > 1) {
+        Arrays.sort(cell, 0, amountApes, BY_ID);
+        cellStarts[amountCells] = amountMembers;
+        for (int i = 0; i < amountApes; i++) {
+          members[amountMembers] = cell[i];
+          memberMoved[amountMembers] = cell[i].moved;
+          amountMembers++;
+        }
+        amountCells++;
+        cellStarts[amountCells] = amountMembers;
+      }
+      for (int i = 0; i < amountApes; i++) {
+        cell[i].moved = false;
+        cell[i] = null;
+      }
+    }
+  }
+
+  /** Infects every pair of groups of a cell, only changing the state of the groups of the cell */
+  private void infectCell(SimState simState, int c) {
+    int from = cellStarts[c];
+    int to = cellStarts[c + 1];
+    for (int i = from; i < to; i++) {
+      for (int j = i + 1; j < to; j++) {
+        /*Groups that were already together before this step aren't in contact again*/
+        if (memberMoved[i] || memberMoved[j]) members[i].infectContact(simState, members[j]);
+      }
+    }
+  }
+
+  /** Forgets the movers of an unfinished step, keeping the buffers for the next run */
+  public void clear() {
+    int amountMovers = this.amountMovers.get();
+    for (int m = 0; m < amountMovers; m++) movers[m].moved = false;
+    Arrays.fill(movers, 0, amountMovers, null);
+    this.amountMovers.set(0);
+    Arrays.fill(members, null);
+    amountCells = 0;
+  }
+
+  /** Makes sure every group of the run fits in the buffers, they can all move in the same step */
+  void ensureCapacity(int groups) {
+    groups = Math.max(1, groups);
+    if (movers == null || movers.length < groups) {
+      movers = new Ape[groups];
+      cell = new Ape[groups];
+      members = new Ape[groups];
+      memberMoved = new boolean[groups];
+      cellStarts = new int[groups + 1];
+    }
+  }
+}
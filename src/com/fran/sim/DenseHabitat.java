@@ -0,0 +1,176 @@
+package com.fran.sim;
+
+import sim.field.grid.SparseGrid2D;
+import sim.util.Int2D;
+
+/**
+ * DenseHabitat keeps one entry per cell in flat arrays, indexed by x * height + y. Each cell holds
+ * its food source and the first and last group in it, and every group links to the next group of
+ * its cell, so looking up or moving a group never hashes or allocates.
+ *
+ * <p>The GUI portrayals draw a SparseGrid2D, which is only built once it is asked for and then
+ * kept in step with the arrays.
+ *
+ * @author Francisco Caeiro
+ */
+public class DenseHabitat implements Habitat {
+  private final int width;
+  private final int height;
+  /** Food source of every cell, null if there is none */
+  private final FoodSource[] foodSources;
+  /** First and last group of every cell */
+  private final Ape[] firstApes;
+  private final Ape[] lastApes;
+  /** Copy of the habitat drawn by the GUI, null until it is asked for */
+  private SparseGrid2D portrayalField;
+
+  public DenseHabitat(int width, int height) {
+    this.width = width;
+    this.height = height;
+    foodSources = new FoodSource[width * height];
+    firstApes = new Ape[width * height];
+    lastApes = new Ape[width * height];
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public void clear() {
+    for (int cell = 0; cell < firstApes.length; cell++) {
+      for (Ape ape = firstApes[cell]; ape != null; ) {
+        Ape next = ape.nextInCell;
+        ape.previousInCell = null;
+        ape.nextInCell = null;
+        ape.cell = -1;
+        ape = next;
+      }
+      foodSources[cell] = null;
+      firstApes[cell] = null;
+      lastApes[cell] = null;
+    }
+    if (portrayalField != null) portrayalField.clear();
+  }
+
+  public boolean isOccupied(int x, int y) {
+    int cell = cell(x, y);
+    return foodSources[cell] != null || firstApes[cell] != null;
+  }
+
+  public void addFoodSource(FoodSource food) {
+    foodSources[cell(food.location.x, food.location.y)] = food;
+    if (portrayalField != null) portrayalField.setObjectLocation(food, food.location);
+  }
+
+  public int getFoodSourcesAround(int x, int y, int distance, FoodSource[] buffer) {
+    int minX = Math.max(0, x - distance);
+    int maxX = Math.min(width - 1, x + distance);
+    int minY = Math.max(0, y - distance);
+    int maxY = Math.min(height - 1, y + distance);
+
+    int found = 0;
+    for (int i = minX; i <= maxX; i++) {
+      for (int j = minY; j <= maxY; j++) {
+        FoodSource food = foodSources[cell(i, j)];
+        if (food != null) buffer[found++] = food;
+      }
+    }
+    return found;
+  }
+
+  public void addApe(Ape ape) {
+    Int2D location = ape.getLocation();
+    link(ape, cell(location.x, location.y));
+    if (portrayalField != null) portrayalField.setObjectLocation(ape, location);
+  }
+
+  public void moveApe(Ape ape, Int2D location) {
+    int cell = cell(location.x, location.y);
+    if (cell == ape.cell) return;
+    unlink(ape);
+    link(ape, cell);
+    if (portrayalField != null) portrayalField.setObjectLocation(ape, location);
+  }
+
+  public int getApesAt(Int2D location, Ape[] buffer) {
+    int amountApes = 0;
+    for (Ape ape = firstApes[cell(location.x, location.y)]; ape != null; ape = ape.nextInCell) {
+      buffer[amountApes++] = ape;
+    }
+    return amountApes;
+  }
+
+  public SparseGrid2D getPortrayalField() {
+    if (portrayalField == null) {
+      portrayalField = new SparseGrid2D(width, height);
+      for (FoodSource food : foodSources) {
+        if (food != null) portrayalField.setObjectLocation(food, food.location);
+      }
+      for (Ape first : firstApes) {
+        for (Ape ape = first; ape != null; ape = ape.nextInCell) {
+          portrayalField.setObjectLocation(ape, ape.getLocation());
+        }
+      }
+    }
+    return portrayalField;
+  }
+
+  private int cell(int x, int y) {
+    return x * height + y;
+  }
+
+  /** Adds a group at the end of the groups of a cell */
+  private void link(Ape ape, int cell) {
+    Ape last = lastApes[cell];
+    ape.cell = cell;
+    ape.previousInCell = last;
+    ape.nextInCell = null;
+    if (last == null) {
+      firstApes[cell] = ape;
+    } else {
+      last.nextInCell = ape;
+    }
+    lastApes[cell] = ape;
+  }
+
+  /**
+   * Removes a group from its cell. A SparseGrid2D moves the last object of a cell into the place of
+   * the removed one, the last group is moved the same way so the groups keep the same order.
+   */
+  private void unlink(Ape ape) {
+    int cell = ape.cell;
+    Ape last = lastApes[cell];
+
+    /*Takes the last group off the end of the cell*/
+    lastApes[cell] = last.previousInCell;
+    if (last.previousInCell == null) {
+      firstApes[cell] = null;
+    } else {
+      last.previousInCell.nextInCell = null;
+    }
+
+    /*And puts it where the removed group was*/
+    if (last != ape) {
+      last.previousInCell = ape.previousInCell;
+      last.nextInCell = ape.nextInCell;
+      if (last.previousInCell == null) {
+        firstApes[cell] = last;
+      } else {
+        last.previousInCell.nextInCell = last;
+      }
+      if (last.nextInCell == null) {
+        lastApes[cell] = last;
+      } else {
+        last.nextInCell.previousInCell = last;
+      }
+    }
+
+    ape.previousInCell = null;
+    ape.nextInCell = null;
+    ape.cell = -1;
+  }
+}
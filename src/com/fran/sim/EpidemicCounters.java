@@ -0,0 +1,94 @@
+package com.fran.sim;
+
+/**
+ * EpidemicCounters keeps the amount of susceptible, infected, recovered and deceased gorillas of
+ * the whole habitat. The groups update it at every transition, so reading a total never needs a
+ * scan over the groups. It also counts the transitions of the current day, which Apes hands to
+ * its EpidemicListeners at the end of every day.
+ *
+ * @author Francisco Caeiro
+ */
+public class EpidemicCounters {
+  private int susceptible;
+  private int infected;
+  private int recovered;
+  private int deceased;
+
+  /** Transitions since the end of the previous day */
+  private int dayInfections;
+  private int dayRecoveries;
+  private int dayDeaths;
+
+  /** Adds the gorillas of a group, all of them susceptible */
+  void addSusceptible(int amount) {
+    susceptible += amount;
+  }
+
+  /** Moves susceptible gorillas to infected */
+  void infect(int amount) {
+    susceptible -= amount;
+    infected += amount;
+    dayInfections += amount;
+  }
+
+  /** Moves infected gorillas to recovered */
+  void recover(int amount) {
+    infected -= amount;
+    recovered += amount;
+    dayRecoveries += amount;
+  }
+
+  /** Moves infected gorillas to deceased */
+  void die(int amount) {
+    infected -= amount;
+    deceased += amount;
+    dayDeaths += amount;
+  }
+
+  /** Starts counting the transitions of a new day */
+  void endDay() {
+    dayInfections = 0;
+    dayRecoveries = 0;
+    dayDeaths = 0;
+  }
+
+  /** Sets every counter to 0, for a new run */
+  void clear() {
+    susceptible = 0;
+    infected = 0;
+    recovered = 0;
+    deceased = 0;
+    endDay();
+  }
+
+  public int getSusceptible() {
+    return susceptible;
+  }
+
+  public int getInfected() {
+    return infected;
+  }
+
+  public int getRecovered() {
+    return recovered;
+  }
+
+  public int getDeceased() {
+    return deceased;
+  }
+
+  /** @return gorillas infected during the current day */
+  public int getDayInfections() {
+    return dayInfections;
+  }
+
+  /** @return gorillas that recovered during the current day */
+  public int getDayRecoveries() {
+    return dayRecoveries;
+  }
+
+  /** @return gorillas that died during the current day */
+  public int getDayDeaths() {
+    return dayDeaths;
+  }
+}
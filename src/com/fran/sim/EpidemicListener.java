@@ -0,0 +1,15 @@
+package com.fran.sim;
+
+/**
+ * EpidemicListener is told the state of the epidemic at the end of every day of a run, once every
+ * group moved. Listeners read the counters in constant time instead of scanning the groups.
+ *
+ * @author Francisco Caeiro
+ */
+public interface EpidemicListener {
+  /**
+   * @param apes run the day belongs to
+   * @param counters totals of the habitat, and the transitions that happened during the day
+   */
+  void dayEnded(Apes apes, EpidemicCounters counters);
+}
@@ -0,0 +1,20 @@
+package com.fran.sim;
+
+/**
+ * Algorithms available to place the food sources in the (2*n + 1)^2 area around the centre of the
+ * habitat, n being the food spreading intensity. They don't give the same landscapes.
+ *
+ * @author Francisco Caeiro
+ */
+public enum FoodPlacement {
+  /**
+   * Draws offsets of up to n cells from the centre until it finds a free cell. Every cell can be
+   * picked, but the centre row and column twice as often, and it slows down as the area fills up
+   */
+  REJECTION,
+  /**
+   * Partial Fisher-Yates shuffle over the cells of the area, every cell is equally likely and each
+   * food source takes a single draw, however full the area is
+   */
+  SHUFFLED
+}
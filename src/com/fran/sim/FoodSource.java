@@ -1,5 +1,8 @@
 package com.fran.sim;
 
+import com.fran.util.RandomStreams;
+import ec.util.MersenneTwisterFast;
+import sim.engine.Schedule;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.util.Int2D;
@@ -11,8 +14,8 @@ public class FoodSource implements Steppable {
   boolean visible;
   /** True if lingering effects of chimpanzees on food source */
   boolean visitedByChimpanzees;
-  /** Boolean that represents if the food source has infected someone in the current step */
-  boolean infectedInCurrentStep;
+  /** Time of the last step in which the food source infected someone */
+  double lastInfectionTime;
   /** Amount of days needed to pass for the next possible chimpanzee visit */
   private int visitedCounter;
   /** Probability of a visited tile to pass on an infection */
@@ -21,54 +24,108 @@ public class FoodSource implements Steppable {
   private int lingerCounter;
   /** Represents how much activity has occurred on food source */
   private double heat;
+  /** Parameters of the run this food source belongs to */
+  private RunParameters parameters;
+  /** Random numbers of the food source, its own stream or the one of the run */
+  private MersenneTwisterFast random;
+  /** Own stream of the food source, kept to be reseeded by later runs */
+  private MersenneTwisterFast ownRandom;
 
   /** Java Bean to display the heat of the tile (roughly signifies traffic in the tile) */
   double getHeat() {
     return heat;
   }
 
-  FoodSource(Int2D location) {
+  FoodSource(Int2D location, RunParameters parameters) {
+    reset(location, parameters);
+  }
+
+  /** Sets up the food source for a new run, Apes keeps its food sources between runs */
+  void reset(Int2D location, RunParameters parameters) {
     this.location = location;
+    this.parameters = parameters;
     this.visible = false;
     this.visitedByChimpanzees = false;
     this.heat = 0.0;
-    //TODO Fix this hack
-    //The visited counter is set to gorillaFoodWaitTime - 1 due to a unflexible approach with the scheduler
-    //Mason has. Scheduler does not have priority (there exists substeps but I couldn't find where it was),
-    //so it will step through food sources and Apes in random order. This means chimpanzees can have 100 percent
-    //change at appearing, but wont affect the ape that is on it because the Ape was scheduled to move first.
-    //Only way of resolving this is keeping the food sources updated a step before the apes, or use substeps in the
-    //latest versions of Mason. This will do for now, but the time gorillas wait to move has to be set > 2.
-    this.visitedCounter = SimParameters.gorillaFoodWaitTime-1;
-    this.lingerCounter = SimParameters.chimpanzeeLingerTime;
-    this.infectedInCurrentStep = false;
-    this.infectionProbability = SimParameters.transmissionProbability;
+    /*Food sources are ordered before the apes in the schedule, so a chimpanzee visit drawn on the
+    day the apes move affects them straight away*/
+    this.visitedCounter = parameters.gorillaFoodWaitTime;
+    this.lingerCounter = parameters.chimpanzeeLingerTime;
+    this.lastInfectionTime = Schedule.BEFORE_SIMULATION;
+    this.infectionProbability = parameters.transmissionProbability;
+  }
+
+  /**
+   * Chooses where the food source draws its random numbers from during the run: either its own
+   * stream, derived from the seed of the run and the order it was placed in, or the generator of
+   * the run.
+   */
+  void setRandom(Apes apes, int index) {
+    if (parameters.agentRandomStreams) {
+      long streamSeed = RandomStreams.seed(apes.seed(), RandomStreams.FOOD_SOURCE, index);
+      ownRandom = RandomStreams.reseed(ownRandom, streamSeed);
+      random = ownRandom;
+    } else {
+      random = apes.random;
+    }
+  }
+
+  /** @return true if the food source infected a gorilla group at the given time */
+  boolean hasInfectedAt(double time) {
+    return lastInfectionTime == time;
+  }
+
+  /** @return time of the first chimpanzee check, when the food source is first stepped */
+  double firstEventTime() {
+    return Schedule.EPOCH + Math.max(1, parameters.gorillaFoodWaitTime) - 1;
   }
 
   @Override
   public void step(SimState simState) {
-    infectedInCurrentStep = false;
+    if (parameters.eventDrivenScheduling) {
+      stepEvent(simState);
+      return;
+    }
 
     if (visitedByChimpanzees) {
       lingerCounter--;
       if (lingerCounter <= 0) {
         visitedByChimpanzees = false;
-        lingerCounter = SimParameters.chimpanzeeLingerTime;
+        lingerCounter = parameters.chimpanzeeLingerTime;
       }
     } else {
       visitedCounter--;
       if (visitedCounter <= 0) {
-        if (simState.random.nextDouble() <= SimParameters.chimpanzeeEncounter)
+        if (random.nextDouble() <= parameters.chimpanzeeEncounter)
           visitedByChimpanzees = true;
-        visitedCounter = SimParameters.gorillaFoodWaitTime;
+        visitedCounter = parameters.gorillaFoodWaitTime;
       }
     }
   }
 
+  /**
+   * Event driven version of step. The food source is only stepped when a chimpanzee check is due
+   * or when the effects of a visit wear off, and schedules its next event itself.
+   */
+  private void stepEvent(SimState simState) {
+    double delay;
+    if (visitedByChimpanzees) {
+      visitedByChimpanzees = false;
+      delay = parameters.gorillaFoodWaitTime;
+    } else if (random.nextDouble() <= parameters.chimpanzeeEncounter) {
+      visitedByChimpanzees = true;
+      delay = parameters.chimpanzeeLingerTime;
+    } else {
+      delay = parameters.gorillaFoodWaitTime;
+    }
+    simState.schedule.scheduleOnce(
+        simState.schedule.getTime() + Math.max(1, delay), Apes.FOOD_SOURCE_ORDERING, this);
+  }
+
   /** Augments the infection probability when an infected gorilla group is on the tile */
   void incrementInfectionProbability() {
     if (infectionProbability < 1.0) {
-      infectionProbability += SimParameters.chimpanzeeInfectionProbabilityRate;
+      infectionProbability += parameters.chimpanzeeInfectionProbabilityRate;
       if (infectionProbability > 1.0) infectionProbability = 1.0;
     }
   }
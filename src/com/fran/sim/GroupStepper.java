@@ -0,0 +1,38 @@
+package com.fran.sim;
+
+import com.fran.util.ParallelFor;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+/**
+ * GroupStepper steps every group of gorillas of a run at once, split over the threads of the
+ * ForkJoinPool of the run, in place of scheduling each group on its own. It is only used with
+ * agent random streams: a group then only changes its own state while it moves and its disease
+ * progresses, and the ContactPhase applies everything else once every group moved. The result is
+ * the same as stepping the groups one after the other.
+ *
+ * @author Francisco Caeiro
+ */
+public class GroupStepper implements Steppable {
+  /** Groups stepped by a single task */
+  private static final int GROUPS_PER_TASK = 64;
+
+  public void step(SimState simState) {
+    Apes apes = (Apes) simState;
+    Ape[] groups = apes.groups;
+    ParallelFor.run(
+        apes.groupPool,
+        0,
+        groups.length,
+        GROUPS_PER_TASK,
+        i -> groups[i].stepScheduledByGroup(simState));
+
+    /*With event driven scheduling every group moves on the same days, so the stepper follows them*/
+    if (apes.parameters.eventDrivenScheduling) {
+      simState.schedule.scheduleOnce(
+          simState.schedule.getTime() + Ape.moveInterval(apes.parameters),
+          Apes.APE_ORDERING,
+          this);
+    }
+  }
+}
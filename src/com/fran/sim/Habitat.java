@@ -0,0 +1,52 @@
+package com.fran.sim;
+
+import sim.field.grid.SparseGrid2D;
+import sim.util.Int2D;
+
+/**
+ * Habitat is the grid the food sources and the groups of gorillas live in. Food sources never move,
+ * groups move from one food source to another. Implementations must keep the groups of a cell in
+ * the order a SparseGrid2D keeps them, so every implementation gives the same results.
+ *
+ * @author Francisco Caeiro
+ */
+public interface Habitat {
+  int getWidth();
+
+  int getHeight();
+
+  /** Removes every food source and group */
+  void clear();
+
+  /** @return true if there is a food source or a group at the location */
+  boolean isOccupied(int x, int y);
+
+  /** Places a food source at its location */
+  void addFoodSource(FoodSource food);
+
+  /**
+   * Copies the food sources at most distance cells away from a location in both axes, the location
+   * included, column by column into a buffer.
+   *
+   * @param buffer big enough to hold (2 * distance + 1)^2 food sources
+   * @return amount of food sources copied
+   */
+  int getFoodSourcesAround(int x, int y, int distance, FoodSource[] buffer);
+
+  /** Places a group at its current location */
+  void addApe(Ape ape);
+
+  /** Moves a group to a new location, nothing changes if it is already there */
+  void moveApe(Ape ape, Int2D location);
+
+  /**
+   * Copies the groups at a location into a buffer.
+   *
+   * @param buffer big enough to hold every group
+   * @return amount of groups copied
+   */
+  int getApesAt(Int2D location, Ape[] buffer);
+
+  /** @return grid holding every food source and group, used by the GUI portrayals */
+  SparseGrid2D getPortrayalField();
+}
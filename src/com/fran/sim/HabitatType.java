@@ -0,0 +1,23 @@
+package com.fran.sim;
+
+/**
+ * Implementations of the habitat a run can use. Both give the same results.
+ *
+ * @author Francisco Caeiro
+ */
+public enum HabitatType {
+  /** Arrays with one entry per cell, lookups don't hash or allocate */
+  DENSE {
+    Habitat create(int width, int height) {
+      return new DenseHabitat(width, height);
+    }
+  },
+  /** A MASON SparseGrid2D, which hashes every object to its location */
+  SPARSE {
+    Habitat create(int width, int height) {
+      return new SparseHabitat(width, height);
+    }
+  };
+
+  abstract Habitat create(int width, int height);
+}
@@ -0,0 +1,17 @@
+package com.fran.sim;
+
+/**
+ * Algorithms available to draw the amount of new infections when infected gorillas meet susceptible
+ * ones. All of them produce the same distribution of outcomes, they only differ in how many random
+ * numbers they need.
+ *
+ * @author Francisco Caeiro
+ */
+public enum InfectionKernel {
+  /** One Bernoulli trial for every pair of infected source and susceptible gorilla */
+  BERNOULLI,
+  /** One Binomial(susceptible, p) draw for every infected source */
+  BINOMIAL,
+  /** A single Binomial(susceptible, 1 - (1 - p)^infected) draw for the whole encounter */
+  BINOMIAL_COLLAPSED
+}
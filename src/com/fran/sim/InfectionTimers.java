@@ -0,0 +1,118 @@
+package com.fran.sim;
+
+/**
+ * InfectionTimers keeps the days left until each infected gorilla of a group recovers or dies.
+ * Gorillas infected at the same time share a cohort, so instead of one timer per gorilla the store
+ * keeps how many gorillas have n days remaining, in a circular buffer. Ageing every timer is a
+ * single index move.
+ *
+ * @author Francisco Caeiro
+ */
+public class InfectionTimers {
+  /** Amount of gorillas per days remaining. The slot at head holds the gorillas with 0 days left */
+  private int[] cohorts;
+  /** Index of the cohort with 0 days remaining */
+  private int head;
+  /**
+   * Timers that went below 0 without being taken. They are never resolved, the same way a negative
+   * entry was never removed from the old list of timers.
+   */
+  private int overdue;
+  /** Total amount of timers stored */
+  private int size;
+
+  /** @param infectionTime longest timer expected, used to size the buffer */
+  public InfectionTimers(int infectionTime) {
+    cohorts = new int[Math.max(infectionTime, 0) + 1];
+  }
+
+  /** @return amount of timers stored */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Adds a single timer */
+  public void add(int daysRemaining) {
+    add(daysRemaining, 1);
+  }
+
+  /** Adds several timers with the same amount of days remaining */
+  public void add(int daysRemaining, int count) {
+    if (count <= 0) return;
+    if (daysRemaining < 0) {
+      overdue += count;
+    } else {
+      if (daysRemaining >= cohorts.length) grow(daysRemaining + 1);
+      cohorts[slot(daysRemaining)] += count;
+    }
+    size += count;
+  }
+
+  /** Takes one day off every timer */
+  public void decrease() {
+    /*Timers at 0 that weren't taken would go negative*/
+    overdue += cohorts[head];
+    cohorts[head] = 0;
+    head = slot(1);
+  }
+
+  /**
+   * Removes every timer that reached 0.
+   *
+   * @return amount of timers removed
+   */
+  public int takeExpired() {
+    int expired = cohorts[head];
+    cohorts[head] = 0;
+    size -= expired;
+    return expired;
+  }
+
+  /**
+   * Removes the timer closest to running out, used when an infected gorilla leaves the group.
+   *
+   * @return days remaining of the removed timer, negative if it was overdue
+   */
+  public int removeSoonest() {
+    if (size == 0) throw new IllegalStateException("No infection timers to remove");
+    size--;
+    if (overdue > 0) {
+      overdue--;
+      return -1;
+    }
+    for (int days = 0; ; days++) {
+      int slot = slot(days);
+      if (cohorts[slot] > 0) {
+        cohorts[slot]--;
+        return days;
+      }
+    }
+  }
+
+  /** Removes every timer */
+  public void clear() {
+    for (int i = 0; i < cohorts.length; i++) cohorts[i] = 0;
+    head = 0;
+    overdue = 0;
+    size = 0;
+  }
+
+  private int slot(int daysRemaining) {
+    int slot = head + daysRemaining;
+    return slot < cohorts.length ? slot : slot - cohorts.length;
+  }
+
+  /** Grows the buffer, keeping every cohort at its days remaining */
+  private void grow(int capacity) {
+    int[] grown = new int[capacity];
+    for (int days = 0; days < cohorts.length; days++) {
+      grown[days] = cohorts[slot(days)];
+    }
+    cohorts = grown;
+    head = 0;
+  }
+}
@@ -0,0 +1,117 @@
+package com.fran.sim;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * LandscapeCache keeps the landscapes generated during a batch, keyed by the seed and the
+ * parameters that shape the landscape, so runs on the same landscape generate it once and share
+ * it. Each landscape is generated by the first run that asks for it, the other runs wait for it
+ * instead of generating it again. The least recently used landscapes are dropped once the cache is
+ * full.
+ *
+ * @author Francisco Caeiro
+ */
+public class LandscapeCache {
+  private final Map<Key, FutureTask<Checkpoint>> landscapes;
+
+  /** @param capacity amount of landscapes kept */
+  public LandscapeCache(int capacity) {
+    int maxSize = Math.max(1, capacity);
+    landscapes =
+        new LinkedHashMap<Key, FutureTask<Checkpoint>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, FutureTask<Checkpoint>> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /**
+   * Gets the landscape generated with a seed, generating it if needed.
+   *
+   * @param seed seed the landscape is generated with
+   * @param factors row of SimLab factors of the run, null to use SimSettings.parameters as they are
+   */
+  public Checkpoint get(long seed, double[] factors) throws InterruptedException {
+    SimParameters parameters = new SimParameters(SimSettings.parameters);
+    SimSettings.setFactors(parameters, factors);
+    Key key = new Key(seed, parameters);
+
+    FutureTask<Checkpoint> landscape;
+    boolean generate = false;
+    synchronized (landscapes) {
+      landscape = landscapes.get(key);
+      if (landscape == null) {
+        landscape = new FutureTask<>(() -> Checkpoint.create(seed, factors));
+        landscapes.put(key, landscape);
+        generate = true;
+      }
+    }
+
+    /*Generated outside the lock, so runs on other landscapes don't wait for it*/
+    if (generate) landscape.run();
+    try {
+      return landscape.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Landscape generation failed", e.getCause());
+    }
+  }
+
+  /** Seed and parameters that decide the landscape of a run */
+  private static final class Key {
+    private final long seed;
+    private final int foodSpreadingIntensity;
+    private final int amountFoodSources;
+    private final int groupsOfGorillas;
+    private final int homerangeRadius;
+    private final int minPopulation;
+    private final int maxPopulation;
+    private final FoodPlacement foodPlacement;
+    private final int worldSize;
+
+    Key(long seed, SimParameters parameters) {
+      this.seed = seed;
+      this.foodSpreadingIntensity = parameters.foodSpreadingIntensity;
+      this.amountFoodSources = parameters.amountFoodSources;
+      this.groupsOfGorillas = parameters.groupsOfGorillas;
+      this.homerangeRadius = parameters.homerangeRadius;
+      this.minPopulation = parameters.minPopulation;
+      this.maxPopulation = parameters.maxPopulation;
+      this.foodPlacement = parameters.foodPlacement;
+      this.worldSize = parameters.worldSize;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) return false;
+      Key other = (Key) obj;
+      return seed == other.seed
+          && foodSpreadingIntensity == other.foodSpreadingIntensity
+          && amountFoodSources == other.amountFoodSources
+          && groupsOfGorillas == other.groupsOfGorillas
+          && homerangeRadius == other.homerangeRadius
+          && minPopulation == other.minPopulation
+          && maxPopulation == other.maxPopulation
+          && foodPlacement == other.foodPlacement
+          && worldSize == other.worldSize;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          seed,
+          foodSpreadingIntensity,
+          amountFoodSources,
+          groupsOfGorillas,
+          homerangeRadius,
+          minPopulation,
+          maxPopulation,
+          foodPlacement,
+          worldSize);
+    }
+  }
+}
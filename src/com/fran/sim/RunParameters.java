@@ -0,0 +1,86 @@
+package com.fran.sim;
+
+/**
+ * RunParameters is the immutable snapshot of the parameters of a single simulation. It is built
+ * once when the run starts, from the SimParameters with the factors of the run applied, and handed
+ * to the agents so they read final fields instead of shared mutable ones.
+ *
+ * @author Francisco Caeiro
+ */
+public final class RunParameters {
+  /** Amount of groups of gorillas in the habitat */
+  public final int groupsOfGorillas;
+  /** Maximum quantity of gorillas per group */
+  public final int maxPopulation;
+  /** Minimum quantity of gorillas per group */
+  public final int minPopulation;
+  /** Amount of food sources in grid boundary */
+  public final int amountFoodSources;
+  /** Defines a (2*n + 1)^2 area where the food can be placed */
+  public final int foodSpreadingIntensity;
+  /** How the food sources are spread over their area */
+  public final FoodPlacement foodPlacement;
+  /** Side of the square habitat in cells */
+  public final int worldSize;
+  /** Area of home range will be radius*2 by radius*2 */
+  public final int homerangeRadius;
+  /** How long each side of the cell is in metres. Used to calculate density */
+  public final int cellSideLength;
+  /** Time in days each group of gorillas stays around a food source */
+  public final int gorillaFoodWaitTime;
+  /** Timer to delete an item off a gorillas memory */
+  public final int gorillaMemoryLength;
+  /** Chance of encountering a chimpanzee on a tile */
+  public final double chimpanzeeEncounter;
+  /** Time that the effects of the chimpanzees linger */
+  public final int chimpanzeeLingerTime;
+  /** Rate of increase of the chimpanzee probability after every infected gorilla */
+  public final double chimpanzeeInfectionProbabilityRate;
+  /** Probability of transmission between a single gorilla to a single gorilla */
+  public final double transmissionProbability;
+  /** Probability of a gorilla recovering after getting the virus */
+  public final double recoveryProbability;
+  /** Time to recover or die from disease. Measured as n * gorillaFoodWaitTime */
+  public final int infectionTime;
+  /** Probability that when the silverback dies, an individual gorilla will move to another group */
+  public final double probabilityOfDispersal;
+  /** Algorithm used to draw the amount of new infections in an encounter */
+  public final InfectionKernel infectionKernel;
+  /** Only steps apes and food sources on the days they act, instead of every day */
+  public final boolean eventDrivenScheduling;
+  /** Resolves the contacts between groups once per step, after every group moved */
+  public final boolean contactPhase;
+  /** Gives every agent its own random numbers and settles the moves once every group moved */
+  public final boolean agentRandomStreams;
+  /** How the habitat stores the food sources and groups of gorillas */
+  public final HabitatType habitatType;
+
+  /** Takes a snapshot of the given parameters */
+  public RunParameters(SimParameters parameters) {
+    this.groupsOfGorillas = parameters.groupsOfGorillas;
+    this.maxPopulation = parameters.maxPopulation;
+    this.minPopulation = parameters.minPopulation;
+    this.amountFoodSources = parameters.amountFoodSources;
+    this.foodSpreadingIntensity = parameters.foodSpreadingIntensity;
+    this.foodPlacement = parameters.foodPlacement;
+    this.worldSize =
+        parameters.worldSize > 0 ? parameters.worldSize : parameters.foodSpreadingIntensity * 3;
+    this.homerangeRadius = parameters.homerangeRadius;
+    this.cellSideLength = parameters.cellSideLength;
+    this.gorillaFoodWaitTime = parameters.gorillaFoodWaitTime;
+    this.gorillaMemoryLength = parameters.gorillaMemoryLength;
+    this.chimpanzeeEncounter = parameters.chimpanzeeEncounter;
+    this.chimpanzeeLingerTime = parameters.chimpanzeeLingerTime;
+    this.chimpanzeeInfectionProbabilityRate = parameters.chimpanzeeInfectionProbabilityRate;
+    this.transmissionProbability = parameters.transmissionProbability;
+    this.recoveryProbability = parameters.recoveryProbability;
+    this.infectionTime = parameters.infectionTime;
+    this.probabilityOfDispersal = parameters.probabilityOfDispersal;
+    this.infectionKernel = parameters.infectionKernel;
+    this.eventDrivenScheduling = parameters.eventDrivenScheduling;
+    /*Runs only stop depending on the step order if the contacts are resolved in id order too*/
+    this.contactPhase = parameters.contactPhase || parameters.agentRandomStreams;
+    this.agentRandomStreams = parameters.agentRandomStreams;
+    this.habitatType = parameters.habitatType;
+  }
+}
@@ -1,36 +1,162 @@
 package com.fran.sim;
 
+import picocli.CommandLine.Option;
+
+/**
+ * SimParameters holds the editable model parameters of a simulation. Every run works on its own
+ * copy, so runs with different factors can be executed at the same time. Once the factors are
+ * applied the copy is frozen into a RunParameters snapshot. Every parameter can also be set from
+ * the command line of ApesCommand.
+ *
+ * @author Francisco Caeiro
+ */
 public class SimParameters {
   /** Amount of groups of gorillas in the habitat */
-  public static int groupsOfGorillas = 100;
+  @Option(
+      names = "--groups-of-gorillas",
+      description = "Amount of groups of gorillas in the habitat")
+  public int groupsOfGorillas = 100;
   /** Maximum quantity of gorillas per group */
-  public static int maxPopulation = 17;
+  @Option(names = "--max-population", description = "Maximum quantity of gorillas per group")
+  public int maxPopulation = 17;
   /** Minimum quantity of gorillas per group */
-  public static int minPopulation = 8;
+  @Option(names = "--min-population", description = "Minimum quantity of gorillas per group")
+  public int minPopulation = 8;
   /** Amount of food sources in grid boundary */
-  public static int amountFoodSources = 150;
+  @Option(names = "--amount-food-sources", description = "Amount of food sources in grid boundary")
+  public int amountFoodSources = 150;
   /** Defines a (2*n + 1)^2 area where the food can be placed */
-  public static int foodSpreadingIntensity = 14;
+  @Option(
+      names = "--food-spreading-intensity",
+      description = "Defines a (2*n + 1)^2 area where the food can be placed")
+  public int foodSpreadingIntensity = 14;
+  /** How the food sources are spread over their area */
+  @Option(
+      names = "--food-placement",
+      description = "How the food sources are spread over their area")
+  public FoodPlacement foodPlacement = FoodPlacement.REJECTION;
+  /** Side of the square habitat in cells, 0 for three times the food spreading intensity */
+  @Option(
+      names = "--world-size",
+      description =
+          "Side of the square habitat in cells, at least 2*n + 1 for a food spreading intensity of"
+              + " n. 0 for three times the food spreading intensity")
+  public int worldSize = 0;
   /** Area of home range will be radius*2 by radius*2 */
-  public static int homerangeRadius = 2;
+  @Option(
+      names = "--homerange-radius",
+      description = "Area of home range will be radius*2 by radius*2")
+  public int homerangeRadius = 2;
   /** How long each side of the cell is in metres. Used to calculate density */
-  public static int cellSideLength = 100;
+  @Option(
+      names = "--cell-side-length",
+      description = "How long each side of the cell is in metres. Used to calculate density")
+  public int cellSideLength = 100;
   /** Time in days each group of gorillas stays around a food source */
-  public static int gorillaFoodWaitTime = 7;
+  @Option(
+      names = "--gorilla-food-wait-time",
+      description = "Time in days each group of gorillas stays around a food source")
+  public int gorillaFoodWaitTime = 7;
   /** Timer to delete an item off a gorillas memory */
-  public static int gorillaMemoryLength = 3;
+  @Option(
+      names = "--gorilla-memory-length",
+      description = "Timer to delete an item off a gorillas memory")
+  public int gorillaMemoryLength = 3;
   /** Chance of encountering a chimpanzee on a tile */
-  public static double chimpanzeeEncounter = 0.001;
+  @Option(
+      names = "--chimpanzee-encounter",
+      description = "Chance of encountering a chimpanzee on a tile")
+  public double chimpanzeeEncounter = 0.001;
   /** Time that the effects of the chimpanzees linger */
-  public static int chimpanzeeLingerTime = 7;
+  @Option(
+      names = "--chimpanzee-linger-time",
+      description = "Time that the effects of the chimpanzees linger")
+  public int chimpanzeeLingerTime = 7;
   /** Rate of increase of the chimpanzee probability after every infected gorilla */
-  public static double chimpanzeeInfectionProbabilityRate = 0.0;
+  @Option(
+      names = "--chimpanzee-infection-probability-rate",
+      description = "Rate of increase of the chimpanzee probability after every infected gorilla")
+  public double chimpanzeeInfectionProbabilityRate = 0.0;
   /** Probability of transmission between a single gorilla to a single gorilla */
-  public static double transmissionProbability = 0.36826;
+  @Option(
+      names = "--transmission-probability",
+      description = "Probability of transmission between a single gorilla to a single gorilla")
+  public double transmissionProbability = 0.36826;
   /** Probability of a gorilla recovering after getting the virus */
-  public static double recoveryProbability = 0.51213;
+  @Option(
+      names = "--recovery-probability",
+      description = "Probability of a gorilla recovering after getting the virus")
+  public double recoveryProbability = 0.51213;
   /** Time to recover or die from disease. Measured as n * gorillaFoodWaitTime */
-  public static int infectionTime = 3;
+  @Option(
+      names = "--infection-time",
+      description = "Time to recover or die from disease. Measured as n * gorillaFoodWaitTime")
+  public int infectionTime = 3;
   /** Probability that when the silverback dies, an individual gorilla will move to another group */
-  public static double probabilityOfDispersal = 0.5;
+  @Option(
+      names = "--probability-of-dispersal",
+      description =
+          "Probability that when the silverback dies, an individual gorilla will move to another"
+              + " group")
+  public double probabilityOfDispersal = 0.5;
+  /** Algorithm used to draw the amount of new infections in an encounter */
+  @Option(
+      names = "--infection-kernel",
+      description = "Algorithm used to draw the amount of new infections in an encounter")
+  public InfectionKernel infectionKernel = InfectionKernel.BERNOULLI;
+  /** Only steps apes and food sources on the days they act, instead of every day */
+  @Option(
+      names = "--event-driven-scheduling",
+      description = "Only steps apes and food sources on the days they act, instead of every day")
+  public boolean eventDrivenScheduling = false;
+  /** Resolves the contacts between groups once per step, after every group moved */
+  @Option(
+      names = "--contact-phase",
+      description = "Resolves the contacts between groups once per step, after every group moved")
+  public boolean contactPhase = false;
+  /**
+   * Gives every group and food source its own random numbers and applies the effects a move has on
+   * other groups once every group moved, so runs don't depend on the order the agents step in
+   */
+  @Option(
+      names = "--agent-random-streams",
+      description =
+          "Gives every group and food source its own random numbers, so runs don't depend on the"
+              + " order the agents step in")
+  public boolean agentRandomStreams = false;
+  /** How the habitat stores the food sources and groups of gorillas */
+  @Option(
+      names = "--habitat-type",
+      description = "How the habitat stores the food sources and groups of gorillas")
+  public HabitatType habitatType = HabitatType.SPARSE;
+
+  /** Creates a set of parameters with the default values */
+  public SimParameters() {}
+
+  /** Creates a copy of another set of parameters */
+  public SimParameters(SimParameters other) {
+    this.groupsOfGorillas = other.groupsOfGorillas;
+    this.maxPopulation = other.maxPopulation;
+    this.minPopulation = other.minPopulation;
+    this.amountFoodSources = other.amountFoodSources;
+    this.foodSpreadingIntensity = other.foodSpreadingIntensity;
+    this.foodPlacement = other.foodPlacement;
+    this.worldSize = other.worldSize;
+    this.homerangeRadius = other.homerangeRadius;
+    this.cellSideLength = other.cellSideLength;
+    this.gorillaFoodWaitTime = other.gorillaFoodWaitTime;
+    this.gorillaMemoryLength = other.gorillaMemoryLength;
+    this.chimpanzeeEncounter = other.chimpanzeeEncounter;
+    this.chimpanzeeLingerTime = other.chimpanzeeLingerTime;
+    this.chimpanzeeInfectionProbabilityRate = other.chimpanzeeInfectionProbabilityRate;
+    this.transmissionProbability = other.transmissionProbability;
+    this.recoveryProbability = other.recoveryProbability;
+    this.infectionTime = other.infectionTime;
+    this.probabilityOfDispersal = other.probabilityOfDispersal;
+    this.infectionKernel = other.infectionKernel;
+    this.eventDrivenScheduling = other.eventDrivenScheduling;
+    this.contactPhase = other.contactPhase;
+    this.agentRandomStreams = other.agentRandomStreams;
+    this.habitatType = other.habitatType;
+  }
 }
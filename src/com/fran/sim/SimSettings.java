@@ -1,6 +1,6 @@
 package com.fran.sim;
 
-import com.fran.util.IOHandler;
+import com.fran.util.RunStatistics;
 import com.fran.util.Stats;
 
 import java.util.ArrayList;
@@ -20,15 +20,20 @@ public class SimSettings {
   /** Seed used for the run */
   public static int seed = 10000;
   /** SimLab sample file location used to set the factors every run */
-  public static String inputFile =
-      "D:\\Users\\Fran\\Documents\\Modules\\Dissertation\\Testing\\v2\\TransmissionProbabilityTesting\\20000Runs_NoDispersal\\samples.sam";
+  public static String inputFile = "samples.sam";
   /** Output file with the outputFactors used to analyse using SimLab */
-  public static String outputFile =
-      "D:\\Users\\Fran\\Documents\\Modules\\Dissertation\\Testing\\v2\\TransmissionProbabilityTesting\\20000Runs_NoDispersal\\output.txt";
+  public static String outputFile = "output.txt";
   /** Amount of steps per run performed */
   public static int numberOfSteps = 364;
   /** Amount of total runs scheduled if program is run in Apes entry point */
   public static int numberOfRuns = 20000;
+  /**
+   * Amount of landscapes the runs of a batch are spread over, generated once and shared. 0 to
+   * generate a new landscape every run
+   */
+  public static int numberOfLandscapes = 0;
+  /** Amount of runs executed at the same time, defaults to one per core */
+  public static int numberOfThreads = Runtime.getRuntime().availableProcessors();
   /** Name of the factors outputted */
   public static String[] outputFactorNames = {"DeceasedRatio"};
 
@@ -38,15 +43,41 @@ public class SimSettings {
   public static boolean enableHeatMap = true;
   /** Enables or disables the printing of interaction records */
   public static boolean enableRecordPrinting = true;
+  /** Enables or disables recording the S/I/R/D counts of every day of the batch runs */
+  public static boolean enableTimeSeries = false;
+  /** Binary file the S/I/R/D counts of the batch runs are written to */
+  public static String timeSeriesFile = "timeseries.bin";
+  /** Threads the groups of a single run are stepped on, only used with agent random streams */
+  public static int threadsPerRun = 1;
+  /**
+   * Ends a batch run as soon as its epidemic is extinct, as the rest wouldn't change its Stats. An
+   * epidemic is only extinct once no gorilla is infected and chimpanzeeEncounter is 0, so with the
+   * default encounter probability every run still goes up to the step limit. Runs that record
+   * their interactions to a file are never ended early either.
+   */
+  public static boolean stopExtinctRuns = true;
 
-  public static ArrayList<Stats> statsFromRun = new ArrayList<>(numberOfRuns);
+  /** Parameters every run starts from before its factors are applied */
+  public static SimParameters parameters = new SimParameters();
 
-  public static void setFactors() {
-    if (SimSettings.useSimlab) {
-      ArrayList<Double> list = IOHandler.getNextRowOfFactors();
-      // Use list.get() to get factors and associate them to the corresponding setting
-      //SimParameters.infectionTime = (int) Math.round(list.get(0));
-      SimParameters.transmissionProbability = list.get(0);
+  /** Summary of the statistics of every run of the batch, kept in constant memory */
+  public static RunStatistics statistics = new RunStatistics();
+  /** Keeps the Stats of every run in statsFromRun. Memory then grows with the amount of runs */
+  public static boolean keepStatsFromRun = false;
+  /** Stats of every run in run order, only filled if keepStatsFromRun is enabled */
+  public static ArrayList<Stats> statsFromRun = new ArrayList<>();
+
+  /**
+   * Associates a row of SimLab factors to the parameters of a single run.
+   *
+   * @param parameters parameters of the run, modified in place
+   * @param list row of factors read from the sample file, null if the run is not driven by SimLab
+   */
+  public static void setFactors(SimParameters parameters, double[] list) {
+    if (list != null) {
+      // Use list[n] to get factors and associate them to the corresponding setting
+      //parameters.infectionTime = (int) Math.round(list[0]);
+      parameters.transmissionProbability = list[0];
     }
   }
 }
@@ -0,0 +1,78 @@
+package com.fran.sim;
+
+import sim.field.grid.SparseGrid2D;
+import sim.util.Bag;
+import sim.util.Int2D;
+
+/**
+ * SparseHabitat keeps the food sources and groups in a MASON SparseGrid2D, the way the habitat was
+ * originally stored.
+ *
+ * @author Francisco Caeiro
+ */
+public class SparseHabitat implements Habitat {
+  private final SparseGrid2D grid;
+
+  public SparseHabitat(int width, int height) {
+    grid = new SparseGrid2D(width, height);
+  }
+
+  public int getWidth() {
+    return grid.getWidth();
+  }
+
+  public int getHeight() {
+    return grid.getHeight();
+  }
+
+  public void clear() {
+    grid.clear();
+  }
+
+  public boolean isOccupied(int x, int y) {
+    return grid.getObjectsAtLocation(x, y) != null;
+  }
+
+  public void addFoodSource(FoodSource food) {
+    grid.setObjectLocation(food, food.location);
+  }
+
+  public int getFoodSourcesAround(int x, int y, int distance, FoodSource[] buffer) {
+    Bag neighbours = grid.getMooreNeighbors(x, y, distance, SparseGrid2D.BOUNDED, true);
+
+    int amountFoodSources = 0;
+    for (int i = 0; i < neighbours.size(); i++) {
+      Object obj = neighbours.get(i);
+      if (obj instanceof FoodSource) {
+        buffer[amountFoodSources++] = (FoodSource) obj;
+      }
+    }
+    return amountFoodSources;
+  }
+
+  public void addApe(Ape ape) {
+    grid.setObjectLocation(ape, ape.getLocation());
+  }
+
+  public void moveApe(Ape ape, Int2D location) {
+    grid.setObjectLocation(ape, location);
+  }
+
+  public int getApesAt(Int2D location, Ape[] buffer) {
+    Bag cell = grid.getObjectsAtLocation(location);
+    if (cell == null) return 0;
+
+    int amountApes = 0;
+    for (int i = 0; i < cell.size(); i++) {
+      Object obj = cell.get(i);
+      if (obj instanceof Ape) {
+        buffer[amountApes++] = (Ape) obj;
+      }
+    }
+    return amountApes;
+  }
+
+  public SparseGrid2D getPortrayalField() {
+    return grid;
+  }
+}
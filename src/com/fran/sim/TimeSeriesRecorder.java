@@ -0,0 +1,100 @@
+package com.fran.sim;
+
+import java.util.Arrays;
+
+/**
+ * TimeSeriesRecorder keeps the amount of susceptible, infected, recovered and deceased gorillas of
+ * the whole habitat at the end of every step. It is told about the end of every day once every
+ * group has moved, and copies the live counters of the run. The counts are kept in one primitive
+ * array per column.
+ *
+ * @author Francisco Caeiro
+ */
+public class TimeSeriesRecorder implements EpidemicListener {
+  private int[] susceptible;
+  private int[] infected;
+  private int[] recovered;
+  private int[] deceased;
+  /** Amount of steps recorded */
+  private int steps;
+
+  /**
+   * @param numberOfSteps amount of steps of a run. A full run records every day from the epoch up
+   *     to and including numberOfSteps, so the columns are sized for one more
+   */
+  public TimeSeriesRecorder(int numberOfSteps) {
+    int capacity = Math.max(1, numberOfSteps + 1);
+    susceptible = new int[capacity];
+    infected = new int[capacity];
+    recovered = new int[capacity];
+    deceased = new int[capacity];
+  }
+
+  public void dayEnded(Apes apes, EpidemicCounters counters) {
+    record(
+        counters.getSusceptible(),
+        counters.getInfected(),
+        counters.getRecovered(),
+        counters.getDeceased());
+  }
+
+  /** Appends the counts of a step */
+  void record(int s, int i, int r, int d) {
+    if (steps == susceptible.length) grow(steps * 2);
+    susceptible[steps] = s;
+    infected[steps] = i;
+    recovered[steps] = r;
+    deceased[steps] = d;
+    steps++;
+  }
+
+  /**
+   * Repeats the counts of the last step recorded until there are the given amount of steps, used
+   * when a run ends early because its counts can't change anymore.
+   */
+  void fill(int totalSteps) {
+    if (steps == 0) return;
+    if (totalSteps > susceptible.length) grow(totalSteps);
+    int last = steps - 1;
+    while (steps < totalSteps) {
+      susceptible[steps] = susceptible[last];
+      infected[steps] = infected[last];
+      recovered[steps] = recovered[last];
+      deceased[steps] = deceased[last];
+      steps++;
+    }
+  }
+
+  /** Removes every recorded step, keeping the columns for the next run */
+  public void clear() {
+    steps = 0;
+  }
+
+  /** @return amount of steps recorded, the columns hold valid counts up to this index */
+  public int getSteps() {
+    return steps;
+  }
+
+  public int[] getSusceptible() {
+    return susceptible;
+  }
+
+  public int[] getInfected() {
+    return infected;
+  }
+
+  public int[] getRecovered() {
+    return recovered;
+  }
+
+  public int[] getDeceased() {
+    return deceased;
+  }
+
+  private void grow(int capacity) {
+    susceptible = Arrays.copyOf(susceptible, capacity);
+    infected = Arrays.copyOf(infected, capacity);
+    recovered = Arrays.copyOf(recovered, capacity);
+    deceased = Arrays.copyOf(deceased, capacity);
+  }
+}
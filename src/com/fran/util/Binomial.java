@@ -0,0 +1,148 @@
+package com.fran.util;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Binomial draws the number of successes out of n independent trials with the same probability.
+ * Small means are sampled by inversion, which only needs a single random number per draw. Large
+ * means use the BTPE algorithm of Kachitvichyanukul and Schmeiser, which takes about two random
+ * numbers per draw however many trials there are.
+ */
+public class Binomial {
+  /** Above this mean inversion walks too far, so BTPE is used instead */
+  static final double INVERSION_LIMIT = 30.0;
+
+  private Binomial() {}
+
+  /**
+   * Draws a value from Binomial(n, p).
+   *
+   * @param random random number generator of the simulation
+   * @param n number of trials
+   * @param p probability of success of each trial
+   * @return number of successes, between 0 and n
+   */
+  public static int sample(MersenneTwisterFast random, int n, double p) {
+    if (n <= 0 || p <= 0.0) return 0;
+    if (p >= 1.0) return n;
+
+    /*Both samplers need p <= 0.5, so count the failures instead if needed*/
+    if (p > 0.5) return n - sample(random, n, 1.0 - p);
+
+    if (n * p >= INVERSION_LIMIT) return sampleBtpe(random, n, p);
+
+    /*Walks the cumulative distribution using the ratio between consecutive probabilities*/
+    double q = 1.0 - p;
+    double s = p / q;
+    double a = (n + 1) * s;
+    double first = Math.pow(q, n);
+    while (true) {
+      double r = first;
+      double u = random.nextDouble();
+      int x = 0;
+      while (u > r) {
+        u -= r;
+        x++;
+        if (x > n) break;
+        r *= (a / x) - s;
+      }
+      /*Rounding can leave a tiny amount of u unaccounted for, in which case draw again*/
+      if (x <= n) return x;
+    }
+  }
+
+  /**
+   * BTPE: draws from a majorizing function made of a triangle, two parallelograms and two
+   * exponential tails around the mode, and accepts the draw against the binomial probabilities.
+   * Most draws are accepted in the triangle, the rest are checked with the recursion between
+   * consecutive probabilities near the mode or with Stirling's approximation away from it.
+   *
+   * @param p probability of success, at most 0.5
+   */
+  private static int sampleBtpe(MersenneTwisterFast random, int n, double p) {
+    double q = 1.0 - p;
+    double npq = n * p * q;
+    double fm = n * p + p;
+    int m = (int) fm;
+    double p1 = Math.floor(2.195 * Math.sqrt(npq) - 4.6 * q) + 0.5;
+    double xm = m + 0.5;
+    double xl = xm - p1;
+    double xr = xm + p1;
+    double c = 0.134 + 20.5 / (15.3 + m);
+    double a = (fm - xl) / (fm - xl * p);
+    double lambdaLeft = a * (1 + a / 2);
+    a = (xr - fm) / (xr * q);
+    double lambdaRight = a * (1 + a / 2);
+    double p2 = p1 * (1 + 2 * c);
+    double p3 = p2 + c / lambdaLeft;
+    double p4 = p3 + c / lambdaRight;
+
+    while (true) {
+      double u = random.nextDouble() * p4;
+      double v = random.nextDouble();
+      int y;
+      if (u <= p1) {
+        /*Triangle, always accepted*/
+        return (int) Math.floor(xm - p1 * v + u);
+      } else if (u <= p2) {
+        /*Parallelograms*/
+        double x = xl + (u - p1) / c;
+        v = v * c + 1 - Math.abs(m - x + 0.5) / p1;
+        if (v > 1) continue;
+        y = (int) Math.floor(x);
+      } else if (u <= p3) {
+        /*Left exponential tail*/
+        y = (int) Math.floor(xl + Math.log(v) / lambdaLeft);
+        if (y < 0) continue;
+        v = v * (u - p2) * lambdaLeft;
+      } else {
+        /*Right exponential tail*/
+        y = (int) Math.floor(xr - Math.log(v) / lambdaRight);
+        if (y > n) continue;
+        v = v * (u - p3) * lambdaRight;
+      }
+
+      int k = Math.abs(y - m);
+      if (k <= 20 || k >= npq / 2 - 1) {
+        /*Near the mode, f(y) / f(m) is cheap to build from the ratio of consecutive terms*/
+        double s = p / q;
+        double as = s * (n + 1);
+        double f = 1.0;
+        if (m < y) {
+          for (int i = m + 1; i <= y; i++) f *= as / i - s;
+        } else if (m > y) {
+          for (int i = y + 1; i <= m; i++) f /= as / i - s;
+        }
+        if (v <= f) return y;
+        continue;
+      }
+
+      /*Squeezes log(f(y) / f(m)) before evaluating it with Stirling's approximation*/
+      double rho = (k / npq) * ((k * (k / 3.0 + 0.625) + 0.1666666666666) / npq + 0.5);
+      double t = -((double) k * k) / (2 * npq);
+      double logV = Math.log(v);
+      if (logV < t - rho) return y;
+      if (logV > t + rho) continue;
+
+      double x1 = y + 1;
+      double f1 = m + 1;
+      double z = n + 1 - m;
+      double w = n - y + 1;
+      double bound =
+          xm * Math.log(f1 / x1)
+              + (n - m + 0.5) * Math.log(z / w)
+              + (y - m) * Math.log(w * p / (x1 * q))
+              + stirlingCorrection(f1)
+              + stirlingCorrection(z)
+              + stirlingCorrection(x1)
+              + stirlingCorrection(w);
+      if (logV <= bound) return y;
+    }
+  }
+
+  /** @return correction term of Stirling's approximation of log(x!) */
+  private static double stirlingCorrection(double x) {
+    double x2 = x * x;
+    return (13680.0 - (462.0 - (132.0 - (99.0 - 140.0 / x2) / x2) / x2) / x2) / x / 166320.0;
+  }
+}
@@ -0,0 +1,105 @@
+package com.fran.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FactorSource reads the rows of a SimLab sample file on demand. A row is parsed into a double[]
+ * the first time a run claims it, so only the rows claimed ahead of the file position are held in
+ * memory. Runs on different threads can claim rows by index in any order.
+ */
+public class FactorSource implements Closeable {
+  private final BufferedReader reader;
+  /** Rows read from the file before the run they belong to claimed them */
+  private final Map<Integer, double[]> readAhead = new HashMap<>();
+  /** Amount of rows in the sample file */
+  private final int numberOfRows;
+  /** Index of the next row in the file */
+  private int nextRow;
+
+  /**
+   * @param input SimLab sample file
+   * @param skip amount of header lines before the first row
+   * @param numberOfRows amount of rows in the file
+   */
+  public FactorSource(File input, int skip, int numberOfRows) throws IOException {
+    this.reader = new BufferedReader(new FileReader(input), 1 << 16);
+    this.numberOfRows = numberOfRows;
+    for (int i = 0; i < skip; i++) {
+      reader.readLine();
+    }
+  }
+
+  /** @return amount of rows in the sample file */
+  public int size() {
+    return numberOfRows;
+  }
+
+  /**
+   * Claims a row of factors. Every row can only be claimed once.
+   *
+   * @param index index of the row, starting at 0
+   * @return factors of the row, in the order of the columns of the file
+   */
+  public synchronized double[] getRow(int index) throws IOException {
+    double[] row = readAhead.remove(index);
+    if (row != null) {
+      return row;
+    }
+    if (index < nextRow || index >= numberOfRows) {
+      throw new IllegalArgumentException("Row " + index + " of the sample file can't be claimed");
+    }
+
+    while (nextRow < index) {
+      readAhead.put(nextRow, readRow());
+    }
+    return readRow();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    readAhead.clear();
+    reader.close();
+  }
+
+  private double[] readRow() throws IOException {
+    String line = reader.readLine();
+    if (line == null) {
+      throw new IOException("Sample file ended after " + nextRow + " rows");
+    }
+    nextRow++;
+    return parse(line);
+  }
+
+  /** Splits a line on tabs and spaces and parses every field, without regular expressions */
+  static double[] parse(String line) {
+    int length = line.length();
+    int fields = 0;
+    for (int i = 0; i < length; ) {
+      while (i < length && isSeparator(line.charAt(i))) i++;
+      if (i == length) break;
+      fields++;
+      while (i < length && !isSeparator(line.charAt(i))) i++;
+    }
+
+    double[] row = new double[fields];
+    int field = 0;
+    for (int i = 0; i < length; ) {
+      while (i < length && isSeparator(line.charAt(i))) i++;
+      if (i == length) break;
+      int start = i;
+      while (i < length && !isSeparator(line.charAt(i))) i++;
+      row[field++] = Double.parseDouble(line.substring(start, i));
+    }
+    return row;
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == '\t' || c == ' ';
+  }
+}
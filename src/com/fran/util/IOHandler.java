@@ -3,16 +3,17 @@ package com.fran.util;
 import com.fran.sim.SimSettings;
 
 import java.io.*;
-import java.util.ArrayList;
 
 public class IOHandler {
 
   public static File input;
   public static File output;
   static final int skip = 4;
+  /** Amount of result rows written between flushes of the output file */
+  static final int flushInterval = 100;
 
-  public static ArrayList<ArrayList<Double>> factors = new ArrayList<>(SimSettings.numberOfRuns);
-  public static int counter = 0;
+  /** Rows of factors of the sample file, read as the runs claim them */
+  public static FactorSource factors;
 
   static public void writeHeader() throws IOException {
     if (!output.exists()) {
@@ -36,40 +37,33 @@ public class IOHandler {
     fWriter.close();
   }
 
-  static public void write(String s) throws IOException {
-    FileWriter fWriter = new FileWriter(output, true);
-    BufferedWriter bWriter = new BufferedWriter(fWriter);
-    bWriter.write(s);
-    bWriter.newLine();
-
-    bWriter.close();
-    fWriter.close();
+  /**
+   * Opens the sink the results of the runs are written to. It stays open for the whole batch and
+   * must be closed once every run finished.
+   */
+  static public ResultsWriter openResults() throws IOException {
+    return new ResultsWriter(output, SimSettings.numberOfRuns, flushInterval);
   }
 
+  /** Opens the sample file, its rows are parsed as the runs claim them */
   static public void read() throws IOException {
-    FileReader fReader = new FileReader(input);
-    BufferedReader bReader = new BufferedReader(fReader);
-
-    String line;
-    for (int i = 0; i < skip; i++) {
-      line = bReader.readLine();
-    }
+    factors = new FactorSource(input, skip, SimSettings.numberOfRuns);
+  }
 
-    for (int i = 0; i < SimSettings.numberOfRuns; i++) {
-      line = bReader.readLine();
-      String[] split = line.split("\t");
-      ArrayList<Double> list = new ArrayList<>();
-      for (String s : split) {
-        list.add(Double.parseDouble(s));
-      }
-      factors.add(list);
+  /** Closes the sample file and drops the rows read ahead, once every run claimed its row */
+  static public void close() throws IOException {
+    if (factors != null) {
+      factors.close();
+      factors = null;
     }
-
-    bReader.close();
-    fReader.close();
   }
 
-  static public ArrayList<Double> getNextRowOfFactors(){
-    return factors.get(counter++);
+  /**
+   * Claims the row of factors of a run. Safe to call from several runs at the same time.
+   *
+   * @param runIndex index of the run, starting at 0
+   */
+  static public double[] getRowOfFactors(int runIndex) throws IOException {
+    return factors.getRow(runIndex);
   }
 }
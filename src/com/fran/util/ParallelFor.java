@@ -0,0 +1,53 @@
+package com.fran.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * ParallelFor runs the body of a loop over a range of indexes on a ForkJoinPool. The range is split
+ * in halves until each task holds at most grain indexes, so idle threads steal the halves left by
+ * busy ones. Every index is run exactly once, and the call returns once all of them ran.
+ */
+public class ParallelFor {
+  private ParallelFor() {}
+
+  /**
+   * @param pool pool the loop runs on, null to run it on the calling thread
+   * @param from first index, inclusive
+   * @param to last index, exclusive
+   * @param grain largest amount of indexes run by a single task
+   * @param body run once for every index
+   */
+  public static void run(ForkJoinPool pool, int from, int to, int grain, IntConsumer body) {
+    if (pool == null || to - from <= grain) {
+      for (int i = from; i < to; i++) body.accept(i);
+    } else {
+      pool.invoke(new Range(from, to, Math.max(1, grain), body));
+    }
+  }
+
+  private static final class Range extends RecursiveAction {
+    private final int from;
+    private final int to;
+    private final int grain;
+    private final IntConsumer body;
+
+    Range(int from, int to, int grain, IntConsumer body) {
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+      this.body = body;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= grain) {
+        for (int i = from; i < to; i++) body.accept(i);
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new Range(from, middle, grain, body), new Range(middle, to, grain, body));
+      }
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.fran.util;
+
+/**
+ * QuantileSketch estimates quantiles of a stream of non negative values in bounded memory. Values
+ * are counted in buckets whose bounds grow geometrically, so every estimate is within the relative
+ * accuracy of a value actually added. Sketches with the same accuracy can be merged, which lets
+ * every worker keep its own sketch.
+ *
+ * <p>If the values span more buckets than the limit, the lowest buckets are collapsed together,
+ * which only affects the accuracy of the lowest quantiles.
+ */
+public class QuantileSketch {
+  /** Relative accuracy used by default, estimates are within 1% of a real value */
+  public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+  /** Maximum amount of buckets used by default */
+  public static final int DEFAULT_MAX_BUCKETS = 2048;
+  /** Values below this one are counted as 0 */
+  private static final double MIN_INDEXABLE_VALUE = Double.MIN_NORMAL;
+  private static final int INITIAL_BUCKETS = 64;
+
+  private final double relativeAccuracy;
+  private final int maxBuckets;
+  /** Ratio between the bounds of a bucket */
+  private final double gamma;
+  private final double logGamma;
+
+  /** Amount of values per bucket, counts[i] holds the bucket with index offset + i */
+  private long[] counts = new long[0];
+  private int offset;
+  /** Lowest and highest index of a non empty bucket */
+  private int minIndex;
+  private int maxIndex;
+  /** Amount of values counted in buckets */
+  private long bucketed;
+  private long zeroCount;
+
+  public QuantileSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BUCKETS);
+  }
+
+  public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+    if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+      throw new IllegalArgumentException("Relative accuracy must be between 0 and 1");
+    }
+    if (maxBuckets < 1) throw new IllegalArgumentException("At least one bucket is needed");
+    this.relativeAccuracy = relativeAccuracy;
+    this.maxBuckets = maxBuckets;
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.logGamma = Math.log(gamma);
+  }
+
+  /** @return amount of values added */
+  public long getCount() {
+    return bucketed + zeroCount;
+  }
+
+  public void add(double value) {
+    if (!(value >= 0)) throw new IllegalArgumentException("Value must be non negative: " + value);
+    if (value < MIN_INDEXABLE_VALUE) {
+      zeroCount++;
+    } else {
+      increment((int) Math.ceil(Math.log(value) / logGamma), 1);
+    }
+  }
+
+  /** Adds every value of another sketch to this one */
+  public void merge(QuantileSketch other) {
+    if (other.relativeAccuracy != relativeAccuracy) {
+      throw new IllegalArgumentException("Sketches with different accuracies can't be merged");
+    }
+    zeroCount += other.zeroCount;
+    if (other.bucketed == 0) return;
+    for (int index = other.minIndex; index <= other.maxIndex; index++) {
+      long count = other.counts[index - other.offset];
+      if (count > 0) increment(index, count);
+    }
+  }
+
+  /**
+   * @param quantile quantile between 0 and 1, e.g. 0.5 for the median
+   * @return estimate of the quantile, NaN if no value was added
+   */
+  public double getQuantile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+    }
+    long count = getCount();
+    if (count == 0) return Double.NaN;
+
+    double rank = quantile * (count - 1);
+    long cumulative = zeroCount;
+    if (rank < cumulative) return 0;
+    for (int index = minIndex; index < maxIndex; index++) {
+      cumulative += counts[index - offset];
+      if (cumulative > rank) return value(index);
+    }
+    return value(maxIndex);
+  }
+
+  /** @return value representing a bucket, at the same relative distance from both bounds */
+  private double value(int index) {
+    return 2 * Math.pow(gamma, index) / (gamma + 1);
+  }
+
+  private void increment(int index, long count) {
+    if (bucketed == 0) {
+      minIndex = index;
+      maxIndex = index;
+    } else if (index > maxIndex) {
+      if (index - minIndex >= maxBuckets) collapseBelow(index - maxBuckets + 1);
+      maxIndex = index;
+    } else if (index < minIndex) {
+      if (maxIndex - index >= maxBuckets) {
+        /*The bucket would be collapsed anyway, so the value goes into the lowest bucket kept*/
+        index = minIndex;
+      } else {
+        minIndex = index;
+      }
+    }
+    ensureCapacity();
+    counts[index - offset] += count;
+    bucketed += count;
+  }
+
+  /** Moves the values of every bucket below the given index into that bucket */
+  private void collapseBelow(int newMinIndex) {
+    long collapsed = 0;
+    for (int index = minIndex; index <= Math.min(maxIndex, newMinIndex - 1); index++) {
+      collapsed += counts[index - offset];
+      counts[index - offset] = 0;
+    }
+    minIndex = newMinIndex;
+    maxIndex = Math.max(maxIndex, newMinIndex);
+    ensureCapacity();
+    counts[newMinIndex - offset] += collapsed;
+  }
+
+  /** Makes the array of counts cover every index between minIndex and maxIndex */
+  private void ensureCapacity() {
+    if (minIndex >= offset && maxIndex < offset + counts.length) return;
+
+    int span = maxIndex - minIndex + 1;
+    int length = Math.max(span, Math.max(INITIAL_BUCKETS, counts.length * 2));
+    length = Math.min(length, Math.max(span, maxBuckets));
+    long[] grown = new long[length];
+    int grownOffset = minIndex - (length - span) / 2;
+    for (int i = 0; i < counts.length; i++) {
+      int index = offset + i;
+      if (counts[i] != 0) grown[index - grownOffset] = counts[i];
+    }
+    counts = grown;
+    offset = grownOffset;
+  }
+}
@@ -0,0 +1,50 @@
+package com.fran.util;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * RandomStreams derives the seed of an independent random number generator for every agent of a
+ * run from the seed of the run and the id of the agent, using the SplitMix64 mixing function. The
+ * numbers an agent draws then only depend on the run and on the agent, not on how many numbers the
+ * other agents drew before it.
+ */
+public class RandomStreams {
+  /** Increment of SplitMix64, the golden ratio scaled to 64 bits */
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  /** Kinds of agents, so a group and a food source with the same id get different streams */
+  public static final int GROUP = 0;
+  public static final int FOOD_SOURCE = 1;
+
+  private RandomStreams() {}
+
+  /**
+   * @param seed seed of the run
+   * @param kind kind of agent, GROUP or FOOD_SOURCE
+   * @param id id of the agent among the ones of its kind
+   * @return seed of the stream of the agent
+   */
+  public static long seed(long seed, int kind, int id) {
+    long stream = ((long) id << 1) | kind;
+    return mix(mix(seed) + (stream + 1) * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Reseeds the stream of an agent for a new run.
+   *
+   * @param random stream the agent used in a past run, null if it has none yet
+   * @return the stream, created if needed
+   */
+  public static MersenneTwisterFast reseed(MersenneTwisterFast random, long streamSeed) {
+    if (random == null) return new MersenneTwisterFast(streamSeed);
+    random.setSeed(streamSeed);
+    return random;
+  }
+
+  /** Finalizer of SplitMix64, spreads every bit of the input over the whole output */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
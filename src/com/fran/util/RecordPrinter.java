@@ -2,40 +2,87 @@ package com.fran.util;
 
 import com.fran.sim.Ape;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.Buffer;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
+/**
+ * RecordPrinter streams the interactions between gorilla groups into a binary file while the
+ * simulation runs. Every record is three big endian ints: the step of the interaction and the ids
+ * of both groups. Records go through a fixed size buffer, so memory doesn't grow with the length of
+ * the run. RecordReader converts the file into text.
+ */
 public class RecordPrinter {
-  private ArrayList<String> interactionRecords;
-  File file;
+  /** Size in bytes of a single record */
+  public static final int RECORD_SIZE = 3 * Integer.BYTES;
+  /** Amount of records held in memory before they are written */
+  private static final int BUFFERED_RECORDS = 4096;
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * BUFFERED_RECORDS);
+  private FileChannel channel;
   String fileName;
 
   public RecordPrinter() {
-    interactionRecords = new ArrayList<>();
     fileName = "test";
   }
 
+  /** Starts a new record file, replacing the records of a previous run */
+  public void open() throws IOException {
+    reset();
+    channel =
+        FileChannel.open(
+            Paths.get(fileName + ".bin"),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /** @return true if interactions are being recorded */
+  public boolean isOpen() {
+    return channel != null;
+  }
+
+  /** Closes the file without writing the records still in the buffer */
   public void reset() {
-    interactionRecords = new ArrayList<>();
+    buffer.clear();
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      channel = null;
+    }
   }
 
-  public void addInteractionApe(Ape ape1, Ape ape2) {
-    interactionRecords.add(
-        Integer.toHexString(ape1.hashCode()) + " " + Integer.toHexString(ape2.hashCode()));
+  /** Records an interaction between two groups, if the printer is open */
+  public void addInteractionApe(int step, Ape ape1, Ape ape2) {
+    if (channel == null) return;
+    try {
+      if (buffer.remaining() < RECORD_SIZE) flush();
+      buffer.putInt(step).putInt(ape1.getId()).putInt(ape2.getId());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
+  /** Writes the buffered records and closes the file */
   public void printToFile() throws IOException {
-    if (!interactionRecords.isEmpty()) {
-      BufferedWriter writer = new BufferedWriter(new FileWriter(fileName + ".txt"));
-      for (String interactionRecord : interactionRecords) {
-        writer.write(interactionRecord);
-        writer.newLine();
-      }
-      writer.close();
+    if (channel != null) {
+      flush();
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
     }
+    buffer.clear();
   }
 }
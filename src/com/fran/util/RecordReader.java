@@ -0,0 +1,60 @@
+package com.fran.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * RecordReader converts the binary interaction records written by RecordPrinter into text, one
+ * "step idA idB" line per interaction.
+ */
+public class RecordReader {
+
+  private RecordReader() {}
+
+  /**
+   * Converts a binary record file into a text file.
+   *
+   * @param input binary file written by RecordPrinter
+   * @param output text file to create
+   * @return amount of records converted
+   */
+  public static long convertToText(File input, File output) throws IOException {
+    long records = 0;
+    ByteBuffer buffer = ByteBuffer.allocateDirect(RecordPrinter.RECORD_SIZE * 4096);
+
+    try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ);
+        BufferedWriter writer = new BufferedWriter(new FileWriter(output))) {
+      /*Records can be split between two reads, so the unread part is kept for the next one*/
+      while (channel.read(buffer) > 0) {
+        buffer.flip();
+        while (buffer.remaining() >= RecordPrinter.RECORD_SIZE) {
+          writer.write(buffer.getInt() + " " + buffer.getInt() + " " + buffer.getInt());
+          writer.newLine();
+          records++;
+        }
+        buffer.compact();
+      }
+    }
+
+    return records;
+  }
+
+  public static void main(String[] args) {
+    if (args.length != 2) {
+      System.out.println("Usage: RecordReader <records.bin> <records.txt>");
+      System.exit(-1);
+    }
+    try {
+      long records = convertToText(new File(args[0]), new File(args[1]));
+      System.out.println("Converted " + records + " interaction records");
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.exit(-1);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.fran.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ResultsWriter is the sink for the output factors of a batch of runs. The output file is opened
+ * once and written through a buffer that is flushed every few rows. Runs can hand in their results
+ * from any thread and in any order, each row is held back until the rows of every earlier run have
+ * been written, so the file follows the run order SimLab expects. SimLab matches each row to a
+ * line of the sample by its position, so a row is never written after a run that is missing.
+ */
+public class ResultsWriter implements Closeable {
+  private final BufferedWriter writer;
+  /** Rows that arrived before the rows of some earlier run */
+  private final Map<Integer, String> pending = new HashMap<>();
+  /** Amount of runs of the batch, one row is expected from each */
+  private final int runs;
+  /** Amount of rows written between flushes */
+  private final int flushInterval;
+  /** Closes the writer if the JVM shuts down before the batch finishes */
+  private final Thread shutdownHook;
+  /** Index of the next run to be written */
+  private int nextRun;
+  private int unflushedRows;
+  private boolean closed;
+
+  /**
+   * @param output file the rows are appended to
+   * @param runs amount of runs of the batch
+   * @param flushInterval amount of rows written between flushes
+   */
+  public ResultsWriter(File output, int runs, int flushInterval) throws IOException {
+    this.runs = runs;
+    this.writer = new BufferedWriter(new FileWriter(output, true), 1 << 16);
+    this.flushInterval = Math.max(1, flushInterval);
+    this.shutdownHook = new Thread(this::closeOnShutdown, "results-writer-shutdown");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * Hands in the result row of a run. The row, and any held back rows that follow it, are written
+   * once every earlier run has been written.
+   *
+   * @param runIndex index of the run, starting at 0
+   * @param row line to write for the run
+   */
+  public synchronized void write(int runIndex, String row) throws IOException {
+    if (closed) {
+      throw new IOException("Results writer is closed");
+    }
+    if (runIndex < 0 || runIndex >= runs) {
+      throw new IllegalArgumentException("Run " + runIndex + " is not part of the batch");
+    }
+    if (runIndex < nextRun || pending.containsKey(runIndex)) {
+      throw new IllegalArgumentException("Result of run " + runIndex + " was already written");
+    }
+
+    pending.put(runIndex, row);
+    String next;
+    while ((next = pending.remove(nextRun)) != null) {
+      writeRow(next);
+      nextRun++;
+    }
+  }
+
+  /**
+   * Closes the file. Every row was already written if every run handed in its result. Otherwise the
+   * rows held back after the first missing run are dropped, as writing them would match them to
+   * the wrong lines of the sample.
+   *
+   * @throws IOException listing the runs that never handed in their result, once the file is
+   *     closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) return;
+    closed = true;
+
+    int dropped = pending.size();
+    String missing = nextRun < runs ? missingRuns(dropped) : null;
+    pending.clear();
+    writer.close();
+
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      /*Already shutting down, the hook is the one closing the writer*/
+    }
+
+    if (missing != null) {
+      throw new IOException(
+          "No result was handed in for runs "
+              + missing
+              + ", the file ends before run "
+              + nextRun
+              + " and the "
+              + dropped
+              + " results held back after it were dropped");
+    }
+  }
+
+  /** @return indexes of the runs without a result, the first few of them if there are many */
+  private String missingRuns(int dropped) {
+    int missing = runs - nextRun - dropped;
+    StringBuilder indexes = new StringBuilder();
+    int listed = 0;
+    for (int run = nextRun; run < runs && listed < 10; run++) {
+      if (!pending.containsKey(run)) {
+        indexes.append(listed == 0 ? "" : ", ").append(run);
+        listed++;
+      }
+    }
+    if (missing > listed) indexes.append(" and ").append(missing - listed).append(" more");
+    return indexes.toString();
+  }
+
+  private void writeRow(String row) throws IOException {
+    writer.write(row);
+    writer.newLine();
+    if (++unflushedRows >= flushInterval) {
+      writer.flush();
+      unflushedRows = 0;
+    }
+  }
+
+  private void closeOnShutdown() {
+    try {
+      close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
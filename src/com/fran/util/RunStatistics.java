@@ -0,0 +1,64 @@
+package com.fran.util;
+
+/**
+ * RunStatistics folds the Stats of every run into running summaries, so the memory used doesn't
+ * grow with the amount of runs. Each worker can fold its own runs and the results merged once the
+ * batch is over. Not thread safe.
+ */
+public class RunStatistics {
+  private final RunningSummary ratioOfDeceased = new RunningSummary();
+  private final RunningSummary totalInfected = new RunningSummary();
+  private final RunningSummary totalRecovered = new RunningSummary();
+  private final RunningSummary totalDeceased = new RunningSummary();
+
+  /** Adds the statistics of a finished run */
+  public void add(Stats stat) {
+    ratioOfDeceased.add(stat.getRatioOfDeceased());
+    totalInfected.add(stat.getTotalInfectedGorillas());
+    totalRecovered.add(stat.getTotalRecoveredGorillas());
+    totalDeceased.add(stat.getTotalDeceasedGorillas());
+  }
+
+  /** Adds every run folded into another RunStatistics to this one */
+  public void merge(RunStatistics other) {
+    ratioOfDeceased.merge(other.ratioOfDeceased);
+    totalInfected.merge(other.totalInfected);
+    totalRecovered.merge(other.totalRecovered);
+    totalDeceased.merge(other.totalDeceased);
+  }
+
+  /** @return amount of runs folded */
+  public long getRuns() {
+    return ratioOfDeceased.getCount();
+  }
+
+  public RunningSummary getRatioOfDeceased() {
+    return ratioOfDeceased;
+  }
+
+  public RunningSummary getTotalInfected() {
+    return totalInfected;
+  }
+
+  public RunningSummary getTotalRecovered() {
+    return totalRecovered;
+  }
+
+  public RunningSummary getTotalDeceased() {
+    return totalDeceased;
+  }
+
+  public String toString() {
+    return "Deceased Ratio: "
+        + ratioOfDeceased
+        + System.lineSeparator()
+        + "Total Infected: "
+        + totalInfected
+        + System.lineSeparator()
+        + "Total Recovered: "
+        + totalRecovered
+        + System.lineSeparator()
+        + "Total Deceased: "
+        + totalDeceased;
+  }
+}
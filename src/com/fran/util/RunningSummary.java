@@ -0,0 +1,96 @@
+package com.fran.util;
+
+/**
+ * RunningSummary summarises a stream of values without keeping them: the mean and variance are
+ * updated with Welford's algorithm, and quantiles are estimated with a QuantileSketch. Summaries
+ * built on different threads can be merged into one.
+ */
+public class RunningSummary {
+  private long count;
+  private double mean;
+  /** Sum of the squared differences from the mean */
+  private double squaredDifferences;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+  private final QuantileSketch sketch = new QuantileSketch();
+
+  /** Adds a value. NaN values, e.g. the ratio of a run without gorillas, are ignored */
+  public void add(double value) {
+    if (Double.isNaN(value)) return;
+    count++;
+    double delta = value - mean;
+    mean += delta / count;
+    squaredDifferences += delta * (value - mean);
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    sketch.add(value);
+  }
+
+  /** Adds every value summarised by another summary to this one */
+  public void merge(RunningSummary other) {
+    if (other.count == 0) return;
+    long total = count + other.count;
+    double delta = other.mean - mean;
+    mean += delta * other.count / total;
+    squaredDifferences +=
+        other.squaredDifferences + delta * delta * ((double) count * other.count / total);
+    count = total;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    sketch.merge(other.sketch);
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /** @return mean of the values, NaN if there are none */
+  public double getMean() {
+    return count == 0 ? Double.NaN : mean;
+  }
+
+  /** @return sample variance of the values */
+  public double getVariance() {
+    return count < 2 ? 0 : squaredDifferences / (count - 1);
+  }
+
+  public double getStandardDeviation() {
+    return Math.sqrt(getVariance());
+  }
+
+  public double getMin() {
+    return count == 0 ? Double.NaN : min;
+  }
+
+  public double getMax() {
+    return count == 0 ? Double.NaN : max;
+  }
+
+  /**
+   * @param quantile quantile between 0 and 1
+   * @return estimate of the quantile, within 1% of a value that was added
+   */
+  public double getQuantile(double quantile) {
+    return sketch.getQuantile(quantile);
+  }
+
+  public String toString() {
+    return "[n="
+        + count
+        + ", mean="
+        + getMean()
+        + ", sd="
+        + getStandardDeviation()
+        + ", min="
+        + getMin()
+        + ", p5="
+        + getQuantile(0.05)
+        + ", p50="
+        + getQuantile(0.5)
+        + ", p95="
+        + getQuantile(0.95)
+        + ", max="
+        + getMax()
+        + "]";
+  }
+}
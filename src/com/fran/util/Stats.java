@@ -1,6 +1,6 @@
 package com.fran.util;
 
-import com.fran.sim.SimParameters;
+import com.fran.sim.RunParameters;
 
 public class Stats {
 
@@ -14,19 +14,22 @@ public class Stats {
   private int totalRecoveredGorillas;
   private int totalDeceasedGorillas;
 
-  public Stats() {
+  private final RunParameters parameters;
+
+  public Stats(RunParameters parameters) {
+    this.parameters = parameters;
     this.totalInitialPopulation = 0;
     this.gorillaDensity = 0;
-    this.totalInitialGroups = SimParameters.groupsOfGorillas;
-    this.totalFoodSources = SimParameters.amountFoodSources;
-    this.foodSpreadArea = SimParameters.amountFoodSources;
+    this.totalInitialGroups = parameters.groupsOfGorillas;
+    this.totalFoodSources = parameters.amountFoodSources;
+    this.foodSpreadArea = parameters.amountFoodSources;
     this.totalInfectedGorillas = 0;
     this.totalRecoveredGorillas = 0;
     this.totalDeceasedGorillas = 0;
   }
 
-  public Stats(int totalInitialPopulation) {
-    this();
+  public Stats(RunParameters parameters, int totalInitialPopulation) {
+    this(parameters);
     this.totalInitialPopulation = totalInitialPopulation;
     calculateDensity();
   }
@@ -39,7 +42,7 @@ public class Stats {
     this.gorillaDensity =
         (double) totalInitialPopulation
             / Math.pow(
-                (double) (((2 * SimParameters.foodSpreadingIntensity) + 1) * SimParameters.cellSideLength)
+                (double) (((2 * parameters.foodSpreadingIntensity) + 1) * parameters.cellSideLength)
                     / 1000,
                 2);
   }
@@ -48,14 +51,26 @@ public class Stats {
     totalInfectedGorillas++;
   }
 
+  public void addTotalInfectedGorillas(int infected) {
+    totalInfectedGorillas += infected;
+  }
+
   public void incrementTotalRecoveredGorillas() {
     totalRecoveredGorillas++;
   }
 
+  public void addTotalRecoveredGorillas(int recovered) {
+    totalRecoveredGorillas += recovered;
+  }
+
   public void incrementTotalDeceasedGorillas() {
     totalDeceasedGorillas++;
   }
 
+  public void addTotalDeceasedGorillas(int deceased) {
+    totalDeceasedGorillas += deceased;
+  }
+
   public String stringHeader() {
     return "Init Population, Init Groups, n Food Sources, "
         + "Habitat Area, Gorillas Density (km^2), Total Infected, "
@@ -0,0 +1,70 @@
+package com.fran.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * TimeSeriesReader converts the curves written by TimeSeriesWriter into text, one
+ * "run step susceptible infected recovered deceased" line per step.
+ */
+public class TimeSeriesReader {
+
+  private TimeSeriesReader() {}
+
+  /**
+   * Converts a binary time series file into a text file.
+   *
+   * @param input binary file written by TimeSeriesWriter
+   * @param output text file to create
+   * @return amount of runs converted
+   */
+  public static int convertToText(File input, File output) throws IOException {
+    int runs = 0;
+
+    try (DataInputStream in =
+            new DataInputStream(new BufferedInputStream(new FileInputStream(input), 1 << 16));
+        BufferedWriter writer = new BufferedWriter(new FileWriter(output))) {
+      while (true) {
+        int runIndex;
+        try {
+          runIndex = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        int steps = in.readInt();
+        int[][] columns = new int[TimeSeriesWriter.COLUMNS][steps];
+        for (int[] column : columns) {
+          for (int i = 0; i < steps; i++) column[i] = in.readInt();
+        }
+        for (int i = 0; i < steps; i++) {
+          writer.write(runIndex + " " + i);
+          for (int[] column : columns) writer.write(" " + column[i]);
+          writer.newLine();
+        }
+        runs++;
+      }
+    }
+
+    return runs;
+  }
+
+  public static void main(String[] args) {
+    if (args.length != 2) {
+      System.out.println("Usage: TimeSeriesReader <timeseries.bin> <timeseries.txt>");
+      System.exit(-1);
+    }
+    try {
+      int runs = convertToText(new File(args[0]), new File(args[1]));
+      System.out.println("Converted the curves of " + runs + " runs");
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.exit(-1);
+    }
+  }
+}
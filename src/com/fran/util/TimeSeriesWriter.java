@@ -0,0 +1,83 @@
+package com.fran.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TimeSeriesWriter writes the S/I/R/D curves of a batch of runs into a single binary file. Every run
+ * is a block of big endian ints: the index of the run, the amount of steps n, then the n
+ * susceptible counts, the n infected counts, the n recovered counts and the n deceased counts.
+ * Columns are stored one after the other so each can be loaded as a single array, e.g. with
+ * numpy.frombuffer(..., dtype='>i4'). Blocks are written in the order runs finish, which is not
+ * necessarily the run order. TimeSeriesReader converts the file into text.
+ */
+public class TimeSeriesWriter implements Closeable {
+  /** Amount of columns of every block */
+  public static final int COLUMNS = 4;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final FileChannel channel;
+
+  /** @param output file to create, replacing the curves of an earlier batch */
+  public TimeSeriesWriter(File output) throws IOException {
+    channel =
+        FileChannel.open(
+            output.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * Writes the curves of a run. Safe to call from several runs at the same time.
+   *
+   * @param runIndex index of the run
+   * @param steps amount of steps of every column
+   */
+  public synchronized void write(
+      int runIndex, int steps, int[] susceptible, int[] infected, int[] recovered, int[] deceased)
+      throws IOException {
+    if (buffer.remaining() < 2 * Integer.BYTES) flush();
+    buffer.putInt(runIndex).putInt(steps);
+    putColumn(susceptible, steps);
+    putColumn(infected, steps);
+    putColumn(recovered, steps);
+    putColumn(deceased, steps);
+  }
+
+  /** Writes the buffered blocks and closes the file */
+  public synchronized void close() throws IOException {
+    if (channel.isOpen()) {
+      flush();
+      channel.close();
+    }
+  }
+
+  /** Copies a column into the buffer, in as many chunks as the buffer needs */
+  private void putColumn(int[] column, int steps) throws IOException {
+    int written = 0;
+    while (written < steps) {
+      int chunk = Math.min(steps - written, buffer.remaining() / Integer.BYTES);
+      if (chunk == 0) {
+        flush();
+        continue;
+      }
+      buffer.asIntBuffer().put(column, written, chunk);
+      buffer.position(buffer.position() + chunk * Integer.BYTES);
+      written += chunk;
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,81 @@
+package com.fran.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import ec.util.MersenneTwisterFast;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import sim.util.Int2D;
+
+/** Checks that getNewFoodSource never picks a remembered food source while others are left. */
+class ApeMemoryTest {
+  private static final int HOME_RANGES = 300;
+  private static final int MOVES = 200;
+
+  @Test
+  void rememberedFoodSourcesAreExcludedUntilNoneIsLeft() {
+    MersenneTwisterFast layout = new MersenneTwisterFast(42);
+    for (int h = 0; h < HOME_RANGES; h++) {
+      int amountFoodSources = 2 + layout.nextInt(8);
+      /*Short memories exclude some food sources, long ones run out of food sources often*/
+      int memoryLength = 1 + layout.nextInt(amountFoodSources + 1);
+      checkMoves(layout, amountFoodSources, memoryLength, h);
+    }
+  }
+
+  private static void checkMoves(
+      MersenneTwisterFast layout, int amountFoodSources, int memoryLength, long seed) {
+    SimParameters settings = new SimParameters();
+    settings.gorillaMemoryLength = memoryLength;
+    RunParameters parameters = new RunParameters(settings);
+
+    /*Distinct cells of a 5x5 home range, like the ones the habitat hands out*/
+    Set<Integer> cells = new HashSet<>();
+    Int2D[] locations = new Int2D[amountFoodSources];
+    FoodSource[] foodSources = new FoodSource[amountFoodSources];
+    int[] homeRange = new int[amountFoodSources];
+    for (int i = 0; i < amountFoodSources; i++) {
+      int cell;
+      do {
+        cell = layout.nextInt(25);
+      } while (!cells.add(cell));
+      locations[i] = new Int2D(cell % 5, cell / 5);
+      foodSources[i] = new FoodSource(locations[i], parameters);
+      homeRange[i] = i;
+    }
+
+    Ape ape = new Ape(0);
+    ape.reset(parameters, 10, 0, homeRange, foodSources, 0, Ape.homeRangeWeights(locations));
+    ape.setRandom(new Apes(seed));
+
+    /*Memory the group should have: starts with the food source it is at*/
+    ArrayDeque<Integer> memory = new ArrayDeque<>();
+    memory.add(0);
+    for (int move = 0; move < MOVES; move++) {
+      for (int i = 0; i < amountFoodSources; i++) {
+        assertEquals(memory.contains(i), ape.isRemembered(i), "memory differs at move " + move);
+      }
+      int previous = ape.currentFoodSource;
+      boolean exhausted = true;
+      for (int i = 0; i < amountFoodSources; i++) {
+        if (i != previous && !memory.contains(i)) exhausted = false;
+      }
+
+      ape.getNewFoodSource(null);
+      int chosen = ape.currentFoodSource;
+
+      assertNotEquals(previous, chosen, "stayed at the same food source");
+      if (exhausted) {
+        memory.clear();
+      } else {
+        assertFalse(memory.contains(chosen), "picked a remembered food source at move " + move);
+      }
+      if (memory.size() == memoryLength) memory.removeFirst();
+      memory.add(chosen);
+    }
+  }
+}
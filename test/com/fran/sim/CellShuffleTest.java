@@ -0,0 +1,103 @@
+package com.fran.sim;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ec.util.MersenneTwisterFast;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class CellShuffleTest {
+  private static final int LARGE_AREA = CellShuffle.MAX_PERMUTATION_CELLS + 1000;
+
+  @Test
+  void smallAreasDrawLikeAPartialFisherYates() {
+    assertDrawsMatchReference(1000, 300, 5);
+    assertDrawsMatchReference(CellShuffle.MAX_PERMUTATION_CELLS, 2000, 6);
+  }
+
+  @Test
+  void largeAreasDrawLikeAPartialFisherYates() {
+    assertDrawsMatchReference(CellShuffle.MAX_PERMUTATION_CELLS + 1, 2000, 7);
+    assertDrawsMatchReference(LARGE_AREA * 16, 5000, 8);
+  }
+
+  @Test
+  void drawingTheWholeAreaGivesAPermutation() {
+    for (int area : new int[] {1, 2, 17, LARGE_AREA}) {
+      CellShuffle shuffle = new CellShuffle();
+      shuffle.reset(area, area);
+      MersenneTwisterFast random = new MersenneTwisterFast(area);
+      boolean[] seen = new boolean[area];
+      for (int i = 0; i < area; i++) {
+        int cell = shuffle.next(random);
+        assertTrue(cell >= 0 && cell < area, "cell " + cell + " outside area " + area);
+        assertFalse(seen[cell], "cell " + cell + " drawn twice");
+        seen[cell] = true;
+      }
+    }
+  }
+
+  @Test
+  void resetForgetsTheCellsDrawnBefore() {
+    CellShuffle shuffle = new CellShuffle();
+    /*Switch between both kinds of area, growing and shrinking the buffers*/
+    int[][] shuffles = {{LARGE_AREA, 3000}, {500, 500}, {LARGE_AREA * 4, 100}, {LARGE_AREA, 3000}};
+    for (int s = 0; s < shuffles.length; s++) {
+      int area = shuffles[s][0];
+      int draws = shuffles[s][1];
+      shuffle.reset(area, draws);
+      int[] cells = draw(shuffle, draws, new MersenneTwisterFast(s));
+      assertArrayEquals(reference(area, draws, new MersenneTwisterFast(s)), cells);
+    }
+  }
+
+  @Test
+  void everyCellIsEquallyLikelyToBeDrawnFirst() {
+    int area = 10;
+    int samples = 100_000;
+    CellShuffle shuffle = new CellShuffle();
+    MersenneTwisterFast random = new MersenneTwisterFast(9);
+    int[] counts = new int[area];
+    for (int i = 0; i < samples; i++) {
+      shuffle.reset(area, 1);
+      counts[shuffle.next(random)]++;
+    }
+    double expected = (double) samples / area;
+    double chiSquared = 0;
+    for (int count : counts) chiSquared += (count - expected) * (count - expected) / expected;
+    /*99.9th percentile of the chi-squared distribution with 9 degrees of freedom*/
+    assertTrue(chiSquared < 27.88, "chi-squared " + chiSquared);
+  }
+
+  private static void assertDrawsMatchReference(int area, int draws, long seed) {
+    CellShuffle shuffle = new CellShuffle();
+    shuffle.reset(area, draws);
+    int[] cells = draw(shuffle, draws, new MersenneTwisterFast(seed));
+    assertArrayEquals(reference(area, draws, new MersenneTwisterFast(seed)), cells);
+    assertEquals(draws, Arrays.stream(cells).distinct().count());
+  }
+
+  private static int[] draw(CellShuffle shuffle, int draws, MersenneTwisterFast random) {
+    int[] cells = new int[draws];
+    for (int i = 0; i < draws; i++) cells[i] = shuffle.next(random);
+    return cells;
+  }
+
+  /** @return first cells of a Fisher-Yates shuffle of the whole area */
+  private static int[] reference(int area, int draws, MersenneTwisterFast random) {
+    int[] permutation = new int[area];
+    for (int i = 0; i < area; i++) permutation[i] = i;
+    int[] cells = new int[draws];
+    for (int i = 0; i < draws; i++) {
+      int j = i + random.nextInt(area - i);
+      int cell = permutation[j];
+      permutation[j] = permutation[i];
+      permutation[i] = cell;
+      cells[i] = cell;
+    }
+    return cells;
+  }
+}
@@ -0,0 +1,82 @@
+package com.fran.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckpointTest {
+  private static final long SEED = 4242;
+  private static final int STEPS = 120;
+
+  @TempDir File directory;
+
+  @BeforeEach
+  void useDefaultParameters() {
+    SimSettings.parameters = new SimParameters();
+    SimSettings.enableRecordPrinting = false;
+    SimSettings.enableTimeSeries = false;
+  }
+
+  @Test
+  void restoredRunMatchesARunFromScratch() throws IOException {
+    File file = new File(directory, "landscape.bin");
+    Checkpoint.create(SEED, null).write(file);
+    Checkpoint checkpoint = Checkpoint.read(file);
+    assertEquals(SEED, checkpoint.getSeed());
+
+    Apes fresh = run(new Apes(SEED), null);
+    Apes restored = run(new Apes(SEED), checkpoint);
+    assertSameRun(fresh, restored);
+
+    /*The pooled food sources and groups are reset from the checkpoint again on the next run*/
+    restored.prepare(SEED, null);
+    assertSameRun(fresh, run(restored, checkpoint));
+  }
+
+  @Test
+  void checkpointOnlyMatchesTheParametersItWasGeneratedWith() {
+    Checkpoint checkpoint = Checkpoint.create(SEED, null);
+    assertTrue(checkpoint.matches(new RunParameters(SimSettings.parameters)));
+
+    SimParameters other = new SimParameters();
+    other.groupsOfGorillas++;
+    assertFalse(checkpoint.matches(new RunParameters(other)));
+    other = new SimParameters();
+    other.worldSize = other.foodSpreadingIntensity * 2 + 1;
+    assertFalse(checkpoint.matches(new RunParameters(other)));
+
+    SimSettings.parameters = other;
+    Apes apes = new Apes(SEED);
+    apes.landscape = checkpoint;
+    assertThrows(IllegalArgumentException.class, apes::start);
+  }
+
+  private static Apes run(Apes apes, Checkpoint checkpoint) {
+    apes.landscape = checkpoint;
+    apes.start();
+    while (apes.schedule.getTime() < STEPS && apes.schedule.step(apes)) ;
+    apes.finish();
+    return apes;
+  }
+
+  private static void assertSameRun(Apes expected, Apes actual) {
+    assertEquals(expected.stat.toString(), actual.stat.toString());
+    int groups = expected.groups.length;
+    assertEquals(groups, actual.groups.length);
+    for (int a = 0; a < groups; a++) {
+      for (int b = a + 1; b < groups; b++) {
+        assertEquals(
+            expected.interactions.getContacts(a, b),
+            actual.interactions.getContacts(a, b),
+            "contacts between " + a + " and " + b);
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.fran.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs both habitats with the same seeds and checks they give the same runs. */
+class HabitatTypeTest {
+  private static final int RUNS = 10;
+  private static final int STEPS = 364;
+
+  @AfterEach
+  void restoreDefaults() {
+    SimSettings.parameters = new SimParameters();
+  }
+
+  @Test
+  void dailySchedulingGivesTheSameRuns() {
+    assertSameRuns(new SimParameters());
+  }
+
+  @Test
+  void eventDrivenSchedulingGivesTheSameRuns() {
+    SimParameters parameters = new SimParameters();
+    parameters.eventDrivenScheduling = true;
+    assertSameRuns(parameters);
+  }
+
+  @Test
+  void crowdedHabitatsGiveTheSameRuns() {
+    SimParameters parameters = new SimParameters();
+    parameters.groupsOfGorillas = 140;
+    parameters.contactPhase = true;
+    assertSameRuns(parameters);
+  }
+
+  private static void assertSameRuns(SimParameters parameters) {
+    SimSettings.enableRecordPrinting = false;
+    SimSettings.enableTimeSeries = false;
+    long contacts = 0;
+    for (int r = 0; r < RUNS; r++) {
+      parameters.habitatType = HabitatType.SPARSE;
+      Apes sparse = run(parameters, 500 + r);
+      parameters.habitatType = HabitatType.DENSE;
+      Apes dense = run(parameters, 500 + r);
+
+      assertEquals(sparse.stat.toString(), dense.stat.toString(), "Stats of run " + r);
+      int groups = sparse.groups.length;
+      for (int a = 0; a < groups; a++) {
+        for (int b = a + 1; b < groups; b++) {
+          int count = sparse.interactions.getContacts(a, b);
+          assertEquals(count, dense.interactions.getContacts(a, b), "contacts of run " + r);
+          contacts += count;
+        }
+      }
+    }
+    assertTrue(contacts > 0, "the runs had no contacts to compare");
+  }
+
+  private static Apes run(SimParameters parameters, long seed) {
+    SimSettings.parameters = parameters;
+    Apes apes = new Apes(seed);
+    apes.start();
+    while (apes.schedule.getTime() < STEPS && apes.schedule.step(apes)) ;
+    apes.finish();
+    return apes;
+  }
+}
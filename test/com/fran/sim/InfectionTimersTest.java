@@ -0,0 +1,75 @@
+package com.fran.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class InfectionTimersTest {
+  @Test
+  void cohortsExpireAfterTheirDays() {
+    InfectionTimers timers = new InfectionTimers(3);
+    timers.add(3, 2);
+    timers.add(1);
+    assertEquals(3, timers.size());
+
+    assertEquals(0, timers.takeExpired());
+    timers.decrease();
+    assertEquals(1, timers.takeExpired());
+    timers.decrease();
+    assertEquals(0, timers.takeExpired());
+    timers.decrease();
+    assertEquals(2, timers.takeExpired());
+    assertTrue(timers.isEmpty());
+  }
+
+  @Test
+  void timersLongerThanTheBufferKeepTheirDays() {
+    InfectionTimers timers = new InfectionTimers(1);
+    timers.decrease();
+    timers.add(1, 4);
+    timers.add(5, 3);
+    timers.decrease();
+    assertEquals(4, timers.takeExpired());
+    for (int day = 0; day < 3; day++) {
+      timers.decrease();
+      assertEquals(0, timers.takeExpired());
+    }
+    timers.decrease();
+    assertEquals(3, timers.takeExpired());
+  }
+
+  @Test
+  void timersLeftAtZeroBecomeOverdueAndNeverExpire() {
+    InfectionTimers timers = new InfectionTimers(2);
+    timers.add(0, 2);
+    timers.decrease();
+    assertEquals(0, timers.takeExpired());
+    assertEquals(2, timers.size());
+    assertEquals(-1, timers.removeSoonest());
+    assertEquals(1, timers.size());
+  }
+
+  @Test
+  void removeSoonestTakesTheTimerClosestToRunningOut() {
+    InfectionTimers timers = new InfectionTimers(5);
+    timers.add(4);
+    timers.add(2, 2);
+    assertEquals(2, timers.removeSoonest());
+    assertEquals(2, timers.removeSoonest());
+    assertEquals(4, timers.removeSoonest());
+    assertThrows(IllegalStateException.class, timers::removeSoonest);
+  }
+
+  @Test
+  void clearRemovesEveryTimer() {
+    InfectionTimers timers = new InfectionTimers(2);
+    timers.add(-1);
+    timers.add(1, 3);
+    timers.clear();
+    assertTrue(timers.isEmpty());
+    timers.decrease();
+    assertEquals(0, timers.takeExpired());
+  }
+}
@@ -0,0 +1,109 @@
+package com.fran.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.jupiter.api.Test;
+
+class BinomialTest {
+  private static final int SAMPLES = 200_000;
+
+  /** Counts the random numbers drawn */
+  private static final class CountingRandom extends MersenneTwisterFast {
+    long draws;
+
+    CountingRandom(long seed) {
+      super(seed);
+    }
+
+    @Override
+    public double nextDouble() {
+      draws++;
+      return super.nextDouble();
+    }
+  }
+
+  @Test
+  void edgeProbabilitiesNeedNoDraws() {
+    CountingRandom random = new CountingRandom(1);
+    assertEquals(0, Binomial.sample(random, 10, 0.0));
+    assertEquals(10, Binomial.sample(random, 10, 1.0));
+    assertEquals(0, Binomial.sample(random, 0, 0.5));
+    assertEquals(0, random.draws);
+  }
+
+  @Test
+  void inversionMatchesTheDistribution() {
+    assertFitsDistribution(20, 0.3);
+    assertFitsDistribution(17, 0.9);
+  }
+
+  @Test
+  void btpeMatchesTheDistribution() {
+    assertFitsDistribution(100, 0.4);
+    assertFitsDistribution(1000, 0.05);
+    assertFitsDistribution(400, 0.75);
+  }
+
+  @Test
+  void btpeTakesAFewDrawsWhateverTheTrials() {
+    for (int n : new int[] {1000, 1_000_000}) {
+      CountingRandom random = new CountingRandom(7);
+      for (int i = 0; i < SAMPLES; i++) Binomial.sample(random, n, 0.3);
+      double drawsPerSample = (double) random.draws / SAMPLES;
+      assertTrue(drawsPerSample < 4, n + " trials took " + drawsPerSample + " draws per sample");
+    }
+  }
+
+  /** Pearson's chi-squared test of the samples against the binomial probabilities */
+  private static void assertFitsDistribution(int n, double p) {
+    MersenneTwisterFast random = new MersenneTwisterFast(n * 31L + (long) (p * 1000));
+    long[] counts = new long[n + 1];
+    for (int i = 0; i < SAMPLES; i++) {
+      int x = Binomial.sample(random, n, p);
+      assertTrue(x >= 0 && x <= n, "sample " + x + " out of range");
+      counts[x]++;
+    }
+
+    /*Values expected less than 5 times are pooled in the last bin*/
+    double statistic = 0;
+    int bins = 0;
+    double pooledExpected = 0;
+    long pooledObserved = 0;
+    for (int x = 0; x <= n; x++) {
+      double expected = SAMPLES * probability(n, p, x);
+      if (expected < 5) {
+        pooledExpected += expected;
+        pooledObserved += counts[x];
+      } else {
+        statistic += square(counts[x] - expected) / expected;
+        bins++;
+      }
+    }
+    if (pooledExpected > 0) {
+      statistic += square(pooledObserved - pooledExpected) / pooledExpected;
+      bins++;
+    }
+
+    /*About the 99.9th percentile of the chi-squared distribution with bins - 1 degrees*/
+    int degrees = bins - 1;
+    double limit = degrees + 4.5 * Math.sqrt(2.0 * degrees) + 6;
+    assertTrue(statistic < limit, "chi-squared " + statistic + " over " + limit + " for " + n);
+  }
+
+  private static double probability(int n, double p, int x) {
+    double log = logFactorial(n) - logFactorial(x) - logFactorial(n - x);
+    return Math.exp(log + x * Math.log(p) + (n - x) * Math.log1p(-p));
+  }
+
+  private static double logFactorial(int n) {
+    double sum = 0;
+    for (int i = 2; i <= n; i++) sum += Math.log(i);
+    return sum;
+  }
+
+  private static double square(double x) {
+    return x * x;
+  }
+}
@@ -0,0 +1,69 @@
+package com.fran.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultsWriterTest {
+  @TempDir File directory;
+
+  @Test
+  void rowsAreWrittenInRunOrder() throws IOException {
+    File output = new File(directory, "results.txt");
+    ResultsWriter results = new ResultsWriter(output, 4, 2);
+    results.write(2, "c");
+    results.write(0, "a");
+    results.write(3, "d");
+    results.write(1, "b");
+    results.close();
+    assertEquals(Arrays.asList("a", "b", "c", "d"), Files.readAllLines(output.toPath()));
+  }
+
+  @Test
+  void rowsAfterAMissingRunAreDroppedAndReported() throws IOException {
+    File output = new File(directory, "results.txt");
+    ResultsWriter results = new ResultsWriter(output, 6, 1);
+    results.write(0, "a");
+    results.write(2, "c");
+    results.write(3, "d");
+    results.write(1, "b");
+    results.write(5, "f");
+
+    IOException missing = assertThrows(IOException.class, results::close);
+    assertTrue(missing.getMessage().contains("runs 4,"), missing.getMessage());
+    List<String> rows = Files.readAllLines(output.toPath());
+    assertEquals(Arrays.asList("a", "b", "c", "d"), rows);
+  }
+
+  @Test
+  void everyMissingRunIsReported() throws IOException {
+    File output = new File(directory, "results.txt");
+    ResultsWriter results = new ResultsWriter(output, 5, 1);
+    results.write(1, "b");
+    results.write(3, "d");
+
+    IOException missing = assertThrows(IOException.class, results::close);
+    assertTrue(missing.getMessage().contains("runs 0, 2, 4,"), missing.getMessage());
+    assertEquals(0, Files.readAllLines(output.toPath()).size());
+  }
+
+  @Test
+  void aRunIsOnlyWrittenOnce() throws IOException {
+    ResultsWriter results = new ResultsWriter(new File(directory, "results.txt"), 3, 1);
+    results.write(0, "a");
+    results.write(2, "c");
+    assertThrows(IllegalArgumentException.class, () -> results.write(0, "a"));
+    assertThrows(IllegalArgumentException.class, () -> results.write(2, "c"));
+    assertThrows(IllegalArgumentException.class, () -> results.write(3, "d"));
+    results.write(1, "b");
+    results.close();
+  }
+}
@@ -0,0 +1,81 @@
+package com.fran.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RunningSummaryTest {
+  @Test
+  void summarisesTheValuesAdded() {
+    RunningSummary summary = new RunningSummary();
+    for (double value : new double[] {2, 4, 4, 4, 5, 5, 7, 9}) summary.add(value);
+    summary.add(Double.NaN);
+    assertEquals(8, summary.getCount());
+    assertEquals(5.0, summary.getMean(), 1e-12);
+    assertEquals(32.0 / 7, summary.getVariance(), 1e-12);
+    assertEquals(2.0, summary.getMin());
+    assertEquals(9.0, summary.getMax());
+  }
+
+  @Test
+  void mergedSummariesMatchASingleOne() {
+    Random random = new Random(3);
+    RunningSummary whole = new RunningSummary();
+    RunningSummary[] workers = new RunningSummary[4];
+    for (int i = 0; i < workers.length; i++) workers[i] = new RunningSummary();
+    for (int i = 0; i < 10_000; i++) {
+      double value = random.nextDouble() * 1000;
+      whole.add(value);
+      workers[random.nextInt(workers.length)].add(value);
+    }
+
+    RunningSummary merged = new RunningSummary();
+    merged.merge(new RunningSummary());
+    for (RunningSummary worker : workers) merged.merge(worker);
+    assertEquals(whole.getCount(), merged.getCount());
+    assertEquals(whole.getMean(), merged.getMean(), 1e-9);
+    assertEquals(whole.getVariance(), merged.getVariance(), 1e-6);
+    assertEquals(whole.getMin(), merged.getMin());
+    assertEquals(whole.getMax(), merged.getMax());
+    for (double quantile : new double[] {0.05, 0.5, 0.95}) {
+      assertEquals(whole.getQuantile(quantile), merged.getQuantile(quantile));
+    }
+  }
+
+  @Test
+  void sketchQuantilesAreWithinTheRelativeAccuracy() {
+    Random random = new Random(5);
+    double[] values = new double[20_000];
+    QuantileSketch[] workers = {new QuantileSketch(), new QuantileSketch()};
+    for (int i = 0; i < values.length; i++) {
+      /*Spans several orders of magnitude, with some zeros*/
+      values[i] = i % 50 == 0 ? 0 : Math.exp(random.nextDouble() * 12);
+      workers[i % 2].add(values[i]);
+    }
+    QuantileSketch merged = new QuantileSketch();
+    for (QuantileSketch worker : workers) merged.merge(worker);
+    Arrays.sort(values);
+
+    assertEquals(values.length, merged.getCount());
+    for (double quantile : new double[] {0, 0.01, 0.25, 0.5, 0.9, 0.99, 1}) {
+      double exact = values[(int) Math.floor(quantile * (values.length - 1))];
+      double estimate = merged.getQuantile(quantile);
+      double accuracy = QuantileSketch.DEFAULT_RELATIVE_ACCURACY;
+      assertTrue(
+          Math.abs(estimate - exact) <= accuracy * exact + 1e-12,
+          "quantile " + quantile + " estimated " + estimate + " for " + exact);
+    }
+  }
+
+  @Test
+  void collapsedSketchesKeepTheHighQuantiles() {
+    QuantileSketch sketch = new QuantileSketch(0.01, 16);
+    for (int i = 1; i <= 1000; i++) sketch.add(i);
+    assertEquals(1000, sketch.getCount());
+    assertEquals(1000, sketch.getQuantile(1), 10);
+    assertEquals(990, sketch.getQuantile(0.99), 10);
+  }
+}